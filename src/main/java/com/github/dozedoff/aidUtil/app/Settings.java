@@ -35,12 +35,30 @@ public class Settings {
 	private String[] moduleNames;
 	private Properties dbProperties;
 	private Path appPath7zip;
+	private int archiveUnpackSlots = DEFAULT_UNPACK_SLOTS;
+	private int archiveHashThreads = DEFAULT_HASH_THREADS;
+	private int fileReaderThreads = DEFAULT_READER_THREADS;
+	private int fileHasherThreads = DEFAULT_HASH_THREADS;
+	private int duplicatePageSize = DEFAULT_DUPLICATE_PAGE_SIZE;
+	private int duplicateMaxGroups = DEFAULT_DUPLICATE_MAX_GROUPS;
 	
 	private static final String modulelistFileName = "modulelist.txt";
 	private static final String dbPropoertiesFilename = "db.properties";
 	private static final String aidUtilSettingsFilename = "aidUtil.properties";
 	
 	private static final String APP_PATH_KEY = "7zipAppPath";
+	private static final String UNPACK_SLOTS_KEY = "archiveUnpackSlots";
+	private static final String HASH_THREADS_KEY = "archiveHashThreads";
+	private static final String READER_THREADS_KEY = "fileReaderThreads";
+	private static final String HASHER_THREADS_KEY = "fileHasherThreads";
+	private static final String DUPLICATE_PAGE_SIZE_KEY = "duplicatePageSize";
+	private static final String DUPLICATE_MAX_GROUPS_KEY = "duplicateMaxGroups";
+	
+	private static final int DEFAULT_UNPACK_SLOTS = 2;
+	private static final int DEFAULT_HASH_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final int DEFAULT_READER_THREADS = 1; // more than one reader will thrash spinning disks
+	private static final int DEFAULT_DUPLICATE_PAGE_SIZE = 1000;
+	private static final int DEFAULT_DUPLICATE_MAX_GROUPS = 100000;
 	
 	Logger logger = LoggerFactory.getLogger(Settings.class);
 	private Settings() {
@@ -92,6 +110,31 @@ public class Settings {
 		File aidUtilPropertiesFile = new File(FileUtil.WorkingDir(), aidUtilSettingsFilename);
 		Properties aidUtilProperties = loadPropertiesFromFile(aidUtilPropertiesFile);
 		appPath7zip = Paths.get((String)aidUtilProperties.get(APP_PATH_KEY));
+		archiveUnpackSlots = loadPositiveInt(aidUtilProperties, UNPACK_SLOTS_KEY, DEFAULT_UNPACK_SLOTS);
+		archiveHashThreads = loadPositiveInt(aidUtilProperties, HASH_THREADS_KEY, DEFAULT_HASH_THREADS);
+		fileReaderThreads = loadPositiveInt(aidUtilProperties, READER_THREADS_KEY, DEFAULT_READER_THREADS);
+		fileHasherThreads = loadPositiveInt(aidUtilProperties, HASHER_THREADS_KEY, DEFAULT_HASH_THREADS);
+		duplicatePageSize = loadPositiveInt(aidUtilProperties, DUPLICATE_PAGE_SIZE_KEY, DEFAULT_DUPLICATE_PAGE_SIZE);
+		duplicateMaxGroups = loadPositiveInt(aidUtilProperties, DUPLICATE_MAX_GROUPS_KEY, DEFAULT_DUPLICATE_MAX_GROUPS);
+	}
+	
+	private int loadPositiveInt(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		
+		if(value == null){
+			return defaultValue;
+		}
+		
+		try {
+			int parsed = Integer.parseInt(value.trim());
+			
+			if(parsed > 0){
+				return parsed;
+			}
+		} catch (NumberFormatException e) {}
+		
+		logger.warn("Invalid value {} for {}, using default {}", new Object[]{value, key, defaultValue});
+		return defaultValue;
 	}
 	
 	private Properties loadPropertiesFromFile(File filepath) {
@@ -123,4 +166,40 @@ public class Settings {
 	public Path getAppPath7zip() {
 		return appPath7zip;
 	}
+
+	/**
+	 * Number of archives that are unpacked concurrently, each into it's own temp folder.
+	 */
+	public int getArchiveUnpackSlots() {
+		return archiveUnpackSlots;
+	}
+
+	public int getArchiveHashThreads() {
+		return archiveHashThreads;
+	}
+
+	/**
+	 * Number of threads reading files from spinning disks.
+	 */
+	public int getFileReaderThreads() {
+		return fileReaderThreads;
+	}
+
+	public int getFileHasherThreads() {
+		return fileHasherThreads;
+	}
+
+	/**
+	 * Number of duplicate groups loaded from the database at a time.
+	 */
+	public int getDuplicatePageSize() {
+		return duplicatePageSize;
+	}
+
+	/**
+	 * Number of duplicate groups the viewer holds before it stops loading more.
+	 */
+	public int getDuplicateMaxGroups() {
+		return duplicateMaxGroups;
+	}
 }
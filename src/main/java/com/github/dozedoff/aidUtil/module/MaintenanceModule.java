@@ -20,12 +20,17 @@ package com.github.dozedoff.aidUtil.module;
 import io.AidDAO;
 
 import java.awt.Container;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.nio.file.Path;
 import java.util.LinkedList;
 
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
+import com.github.dozedoff.aidUtil.util.EtaEstimator;
 import com.github.dozedoff.aidUtil.util.LocationTag;
 import com.github.dozedoff.commonj.io.ConnectionPool;
 
@@ -34,6 +39,8 @@ public abstract class MaintenanceModule {
 	private ConnectionPool pool;
 	private JTextField path, status;
 	private String moduleName;
+	private Timer progressTimer;
+	private final EtaEstimator eta = new EtaEstimator();
 	
 	/**
 	 * Specify a container where modules can add additional components
@@ -150,6 +157,60 @@ public abstract class MaintenanceModule {
 		}
 	}
 	
+	/**
+	 * Periodically call {@link #updateProgress()} on the event dispatch thread,
+	 * until {@link #stopProgressUpdates()} is called. The ETA estimator is reset.
+	 * @param interval time between updates in milliseconds
+	 */
+	protected final synchronized void startProgressUpdates(int interval){
+		stopProgressUpdates();
+		eta.reset();
+		
+		progressTimer = new Timer(interval, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				updateProgress();
+			}
+		});
+		
+		progressTimer.start();
+	}
+	
+	protected final synchronized void stopProgressUpdates(){
+		if(progressTimer != null){
+			progressTimer.stop();
+			progressTimer = null;
+		}
+	}
+	
+	/**
+	 * Stop the progress updates and display the final progress on the event dispatch thread.
+	 */
+	protected final void finishProgressUpdates(){
+		stopProgressUpdates();
+		
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				updateProgress();
+			}
+		});
+	}
+	
+	/**
+	 * Called by the progress timer. Modules that use progress updates should
+	 * feed the ETA estimator and display their progress here.
+	 */
+	protected void updateProgress(){
+	}
+	
+	/**
+	 * Estimator for the time remaining, reset when progress updates are started.
+	 */
+	protected final EtaEstimator getEta(){
+		return eta;
+	}
+	
 	protected String checkTag(Path path){
 		String locationTag = null;
 		LinkedList<String> tags = LocationTag.findTags(path);
@@ -18,6 +18,7 @@
 package com.github.dozedoff.aidUtil.module.archiveIndexer;
 
 import java.nio.file.Path;
+import java.util.Objects;
 
 import com.github.dozedoff.commonj.file.FileInfo;
 public class ArchiveFile extends FileInfo{
@@ -52,10 +53,15 @@ public class ArchiveFile extends FileInfo{
 	}
 	
 	private boolean isSameArchive(ArchiveFile arch){
-		return arch.getArchivePath() == this.getArchivePath();
+		return Objects.equals(arch.getArchivePath(), this.getArchivePath());
 	}
 	
 	private boolean isSamePath(ArchiveFile arch){
-		return arch.getFilePath() == this.getFilePath();
+		return Objects.equals(arch.getFilePath(), this.getFilePath());
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(getArchivePath(), getFilePath());
 	}
 }
@@ -0,0 +1,42 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.archiveIndexer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reads archives without unpacking them to disk.
+ */
+public interface ArchiveReader {
+	/**
+	 * Check if the archive type is supported by this reader.
+	 */
+	public boolean canRead(Path archive);
+	
+	/**
+	 * Hash all images in the archive. Either all images are returned, or an
+	 * exception is thrown, so the archive can be retried with another method.
+	 * 
+	 * @param archive to read
+	 * @return hashed files with their path inside the archive
+	 * @throws IOException if the archive could not be read completely
+	 */
+	public List<ArchiveFile> read(Path archive) throws IOException;
+}
@@ -19,6 +19,7 @@ package com.github.dozedoff.aidUtil.module.archiveIndexer;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -66,14 +67,19 @@ public class ArchiveUnpacker {
 		sge.start();
 		sgo.start();
 		
-		try {sge.join();} catch (InterruptedException e) {}
-		try {sgo.join();} catch (InterruptedException e) {}
-
 		// catch App hangs
-		
-		try {process.waitFor();} catch (InterruptedException e) {}
-		
-		watchDog.interrupt();
+		try {
+			sge.join();
+			sgo.join();
+			process.waitFor();
+		} catch (InterruptedException e) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			logger.info("Unpacking of {} was interrupted", archive);
+			throw new InterruptedIOException("Unpacking interrupted");
+		} finally {
+			watchDog.interrupt();
+		}
 		
 		if(process.exitValue() != 0){
 			if(sgo.getBuffer().contains("Can not open encrypted archive")){
@@ -20,23 +20,53 @@ package com.github.dozedoff.aidUtil.module.archiveIndexer;
 import io.AidDAO;
 import io.AidTables;
 
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.github.dozedoff.commonj.file.FileInfo;
+import com.github.dozedoff.commonj.file.FileUtil;
 import com.github.dozedoff.commonj.io.ConnectionPool;
 
 public class DatabaseHandler {
 	private final AidDAO sql;
+	private final ConnectionPool connPool;
 	private final static String ARCHIVE_LOCATION_TAG = "ARCHIVE";
 	
+	/*
+	 * The NOT EXISTS check is not atomic. The indexer writes with a single DatabaseWorker, so only
+	 * another application writing at the same time can add a second row for the same path. IGNORE
+	 * keeps such a conflict from failing the batch where the column has a unique key, and the
+	 * index lookups below take the first matching row if there is none.
+	 */
+	private final static String ADD_DIR = "INSERT IGNORE INTO `dirlist` (`dirpath`) SELECT ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM `dirlist` WHERE `dirpath` = ?)";
+	private final static String ADD_FILENAME = "INSERT IGNORE INTO `filelist` (`filename`) SELECT ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM `filelist` WHERE `filename` = ?)";
+	private final static String ADD_INDEX = "INSERT INTO `fileindex` (`id`, `dir`, `filename`, `size`, `location`) SELECT ?, "
+			+ "(SELECT `id` FROM `dirlist` WHERE `dirpath` = ? LIMIT 1), "
+			+ "(SELECT `id` FROM `filelist` WHERE `filename` = ? LIMIT 1), ?, "
+			+ "(SELECT `tag_id` FROM `location_tags` WHERE `location` = ? LIMIT 1)";
+	private final static String ADD_DNW = "INSERT IGNORE INTO `dnw` (`id`) VALUES ";
+	
+	private Logger logger = LoggerFactory.getLogger(DatabaseHandler.class);
+	
 	public DatabaseHandler(ConnectionPool connPool) {
 		this.sql = new AidDAO(connPool);
+		this.connPool = connPool;
 	}
 
-	public void addIndex(FileInfo fileInfo){
+	public boolean addIndex(FileInfo fileInfo){
 //		String fileHash = fileInfo.getHash();
 		
 //		if(! sql.isHashed(fileHash)){
-			sql.addIndex(fileInfo, ARCHIVE_LOCATION_TAG);
-			return;
+			return sql.addIndex(fileInfo, ARCHIVE_LOCATION_TAG);
 //		}
 		//FIXME duplicate insert code disabled due to faults in logic
 //		if(isArchived(fileHash)){
@@ -46,6 +76,111 @@ public class DatabaseHandler {
 //		}
 	}
 	
+	/**
+	 * Add all files to the index in a single transaction.
+	 * 
+	 * @param files to add
+	 * @return the files that could not be added
+	 */
+	public List<FileInfo> addIndex(List<? extends FileInfo> files) {
+		LinkedList<FileInfo> failed = new LinkedList<>();
+		Connection con = null;
+		
+		try {
+			con = connPool.getConnection();
+			con.setAutoCommit(false);
+			
+			addPathEntries(con, files);
+			
+			try (PreparedStatement addIndex = con.prepareStatement(ADD_INDEX)) {
+				for(FileInfo info : files){
+					Path relativePath = FileUtil.removeDriveLetter(info.getFilePath());
+					addIndex.setString(1, info.getHash());
+					addIndex.setString(2, toDirPath(relativePath));
+					addIndex.setString(3, relativePath.getFileName().toString());
+					addIndex.setLong(4, info.getSize());
+					addIndex.setString(5, ARCHIVE_LOCATION_TAG);
+					addIndex.addBatch();
+				}
+				
+				failed.addAll(executeBatch(addIndex, files));
+			}
+			
+			con.commit();
+		} catch (SQLException e) {
+			logger.warn("Failed to add batch of {} index entries", files.size(), e);
+			rollback(con);
+			failed.clear();
+			failed.addAll(files);
+		} finally {
+			close(con);
+		}
+		
+		return failed;
+	}
+	
+	private void addPathEntries(Connection con, List<? extends FileInfo> files) throws SQLException {
+		try (PreparedStatement addDir = con.prepareStatement(ADD_DIR); PreparedStatement addFilename = con.prepareStatement(ADD_FILENAME)) {
+			for(FileInfo info : files){
+				Path relativePath = FileUtil.removeDriveLetter(info.getFilePath());
+				String dirPath = toDirPath(relativePath);
+				String filename = relativePath.getFileName().toString();
+				
+				addDir.setString(1, dirPath);
+				addDir.setString(2, dirPath);
+				addDir.addBatch();
+				
+				addFilename.setString(1, filename);
+				addFilename.setString(2, filename);
+				addFilename.addBatch();
+			}
+			
+			addDir.executeBatch();
+			addFilename.executeBatch();
+		}
+	}
+	
+	/**
+	 * Directories are stored without drive letter, with '/' as separator and a trailing '/'.
+	 */
+	private String toDirPath(Path relativePath) {
+		Path parent = relativePath.getParent();
+		
+		if(parent == null){
+			return "";
+		}
+		
+		return parent.toString().replace('\\', '/') + "/";
+	}
+	
+	/**
+	 * Execute the batch and collect the rows that failed. Successful rows are kept.
+	 */
+	private List<FileInfo> executeBatch(PreparedStatement stmt, List<? extends FileInfo> files) {
+		LinkedList<FileInfo> failed = new LinkedList<>();
+		
+		try {
+			stmt.executeBatch();
+		} catch (BatchUpdateException be) {
+			int[] updateCounts = be.getUpdateCounts();
+			int row = 0;
+			
+			for(FileInfo info : files){
+				if(row >= updateCounts.length || updateCounts[row] == Statement.EXECUTE_FAILED){
+					failed.add(info);
+				}
+				row++;
+			}
+			
+			logger.debug("{} rows of batch failed", failed.size(), be);
+		} catch (SQLException e) {
+			logger.warn("Batch execution failed", e);
+			failed.addAll(files);
+		}
+		
+		return failed;
+	}
+	
 	private boolean isArchived(String fileHash){
 		String locDbTag = sql.getLocationById(fileHash);
 		return locDbTag.equalsIgnoreCase(ARCHIVE_LOCATION_TAG);
@@ -56,7 +191,87 @@ public class DatabaseHandler {
 		sql.addIndex(info, ARCHIVE_LOCATION_TAG);
 	}
 	
-	public void addDnw(FileInfo fileInfo){
-		sql.update(fileInfo.getHash(), AidTables.Dnw);
+	public boolean addDnw(FileInfo fileInfo){
+		return sql.update(fileInfo.getHash(), AidTables.Dnw);
+	}
+	
+	/**
+	 * Add all hashes to the DNW list with a single multi-row insert.
+	 * 
+	 * @param files to add
+	 * @return the files that could not be added
+	 */
+	public List<FileInfo> addDnw(List<? extends FileInfo> files) {
+		LinkedList<FileInfo> failed = new LinkedList<>();
+		
+		if(files.isEmpty()){
+			return failed;
+		}
+		
+		Connection con = null;
+		
+		try {
+			con = connPool.getConnection();
+			con.setAutoCommit(false);
+			
+			try (PreparedStatement addDnw = con.prepareStatement(ADD_DNW + valueGroups(files.size()))) {
+				int index = 1;
+				
+				for(FileInfo info : files){
+					addDnw.setString(index++, info.getHash());
+				}
+				
+				addDnw.executeUpdate();
+			}
+			
+			con.commit();
+		} catch (SQLException e) {
+			logger.warn("Failed to add batch of {} DNW entries", files.size(), e);
+			rollback(con);
+			failed.addAll(files);
+		} finally {
+			close(con);
+		}
+		
+		return failed;
+	}
+	
+	private String valueGroups(int count) {
+		StringBuilder sb = new StringBuilder();
+		
+		for(int i = 0; i < count; i++){
+			if(i > 0){
+				sb.append(",");
+			}
+			
+			sb.append("(?)");
+		}
+		
+		return sb.toString();
+	}
+	
+	private void rollback(Connection con) {
+		if(con == null){
+			return;
+		}
+		
+		try {
+			con.rollback();
+		} catch (SQLException e) {
+			logger.warn("Failed to rollback transaction", e);
+		}
+	}
+	
+	private void close(Connection con) {
+		if(con == null){
+			return;
+		}
+		
+		try {
+			con.setAutoCommit(true);
+			con.close();
+		} catch (SQLException e) {
+			logger.warn("Failed to close databse connection", e);
+		}
 	}
 }
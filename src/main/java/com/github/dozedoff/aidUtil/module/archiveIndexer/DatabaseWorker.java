@@ -17,24 +17,59 @@
  */
 package com.github.dozedoff.aidUtil.module.archiveIndexer;
 
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.github.dozedoff.commonj.file.FileInfo;
 
+/**
+ * Writes hashed files to the database in batches. A batch is written when
+ * it is full, or when no new files arrived within the batch timeout.
+ * Rows that fail in a batch are retried one at a time, rows that fail again are kept
+ * in a dead letter list.
+ * The worker exits once it has written all files queued before {@link #END_OF_STREAM}.
+ */
 public class DatabaseWorker extends Thread{
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	public static final long DEFAULT_BATCH_TIMEOUT = 1000;
+	
+	/**
+	 * Marks the end of the queue. Compared by identity.
+	 */
+	public static final ArchiveFile END_OF_STREAM = new ArchiveFile(new FileInfo(Paths.get(""), ""), null);
+	
 	private final DatabaseHandler dbHandler;
 	private final LinkedBlockingQueue<ArchiveFile> outputQueue;
 	private final OperationMode mode;
-	private final PathRewriter reWriter;
+	private final int batchSize;
+	private final long batchTimeout;
+	private final List<FileInfo> deadLetters = new LinkedList<>();
+	
+	private static final Logger logger = LoggerFactory.getLogger(DatabaseWorker.class);
 	
 	public static enum OperationMode {AddToIndex, AddToDNW};
 	
-	public DatabaseWorker(DatabaseHandler dbHandler, LinkedBlockingQueue<ArchiveFile> outputQueue, PathRewriter reWriter, OperationMode mode) {
+	public DatabaseWorker(DatabaseHandler dbHandler, LinkedBlockingQueue<ArchiveFile> outputQueue, OperationMode mode) {
+		this(dbHandler, outputQueue, mode, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_TIMEOUT);
+	}
+	
+	/**
+	 * @param batchSize maximum number of files written in one transaction
+	 * @param batchTimeout time in milliseconds to wait for a batch to fill up
+	 */
+	public DatabaseWorker(DatabaseHandler dbHandler, LinkedBlockingQueue<ArchiveFile> outputQueue, OperationMode mode, int batchSize, long batchTimeout) {
 		super("Database worker");
 		this.dbHandler = dbHandler;
 		this.outputQueue = outputQueue;
-		this.reWriter = reWriter;
 		this.mode = mode;
+		this.batchSize = batchSize;
+		this.batchTimeout = batchTimeout;
 	}
 	
 	@Override
@@ -47,25 +82,121 @@ public class DatabaseWorker extends Thread{
 	}
 	
 	private void doWork() throws InterruptedException {
-		while(! isInterrupted()){
-			ArchiveFile archiveFile = outputQueue.take();
-			reWriter.reWritePath(archiveFile);
-			addToDatabse(archiveFile);
+		LinkedList<ArchiveFile> batch = new LinkedList<>();
+		boolean endOfStream = false;
+		
+		while(! isInterrupted() && ! endOfStream){
+			endOfStream = fillBatch(batch);
+			writeBatch(batch);
+			batch.clear();
+		}
+		
+		logger.info("Database worker finished");
+	}
+	
+	/**
+	 * @return true if the end of the stream was reached
+	 */
+	private boolean fillBatch(LinkedList<ArchiveFile> batch) throws InterruptedException {
+		batch.add(outputQueue.take());
+		long deadline = System.currentTimeMillis() + batchTimeout;
+		
+		while(batch.size() < batchSize && ! isEndOfStream(batch)){
+			outputQueue.drainTo(batch, batchSize - batch.size());
+			long remaining = deadline - System.currentTimeMillis();
+			
+			if(batch.size() >= batchSize || remaining <= 0 || isEndOfStream(batch)){
+				break;
+			}
+			
+			ArchiveFile next = outputQueue.poll(remaining, TimeUnit.MILLISECONDS);
+			
+			if(next == null){
+				break;
+			}
+			
+			batch.add(next);
+		}
+		
+		if(isEndOfStream(batch)){
+			batch.removeLast();
+			return true;
 		}
+		
+		return false;
 	}
 	
-	private void addToDatabse(FileInfo info){
+	/**
+	 * The marker is always the last element queued, so it can only be at the end of the batch.
+	 */
+	private boolean isEndOfStream(LinkedList<ArchiveFile> batch) {
+		return batch.getLast() == END_OF_STREAM;
+	}
+	
+	private void writeBatch(List<ArchiveFile> batch) {
+		if(batch.isEmpty()){
+			return;
+		}
+		
+		long start = System.currentTimeMillis();
+		List<FileInfo> failed = addToDatabase(batch);
+		long duration = System.currentTimeMillis() - start;
+		
+		logger.info("Wrote batch of {} files in {} ms, {} failed", new Object[]{batch.size(), duration, failed.size()});
+		
+		for(FileInfo info : failed){
+			retry(info);
+		}
+	}
+	
+	private List<FileInfo> addToDatabase(List<ArchiveFile> batch){
 		switch (mode) {
 		case AddToIndex:
-			dbHandler.addIndex(info);
-			break;
+			return dbHandler.addIndex(batch);
 			
 		case AddToDNW:
-			dbHandler.addDnw(info);
-			break;
+			return dbHandler.addDnw(batch);
 			
 		default:
-			break;
+			return new LinkedList<FileInfo>();
+		}
+	}
+	
+	private void retry(FileInfo info){
+		boolean added = true;
+		
+		try {
+			switch (mode) {
+			case AddToIndex:
+				added = dbHandler.addIndex(info);
+				break;
+				
+			case AddToDNW:
+				added = dbHandler.addDnw(info);
+				break;
+				
+			default:
+				break;
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Retry for {} failed", info.getFilePath(), e);
+			added = false;
+		}
+		
+		if(! added){
+			logger.warn("Failed to add {} - {} to the database", info.getFilePath(), info.getHash());
+			synchronized (deadLetters) {
+				deadLetters.add(info);
+			}
+		}
+	}
+	
+	/**
+	 * Files that could not be written to the database, even after a retry.
+	 */
+	public List<FileInfo> getDeadLetters() {
+		synchronized (deadLetters) {
+			return new LinkedList<>(deadLetters);
 		}
 	}
 }
@@ -0,0 +1,84 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.archiveIndexer;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Suppresses files that have already been queued for an archive.
+ * Entries are kept per archive, so the memory can be released once an archive is done.
+ */
+public class DuplicateFilter {
+	private final ConcurrentMap<Path, Set<Path>> archiveEntries = new ConcurrentHashMap<>();
+	private final AtomicInteger suppressed = new AtomicInteger();
+	
+	/**
+	 * Register an entry for an archive.
+	 * 
+	 * @param archive the entry belongs to
+	 * @param entry path relative to the archive root
+	 * @return true if the entry has not been seen before
+	 */
+	public boolean add(Path archive, Path entry) {
+		if(getEntries(archive).add(entry)){
+			return true;
+		}
+		
+		suppressed.incrementAndGet();
+		return false;
+	}
+	
+	private Set<Path> getEntries(Path archive) {
+		Set<Path> entries = archiveEntries.get(archive);
+		
+		if(entries == null){
+			Set<Path> newEntries = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+			entries = archiveEntries.putIfAbsent(archive, newEntries);
+			
+			if(entries == null){
+				entries = newEntries;
+			}
+		}
+		
+		return entries;
+	}
+	
+	/**
+	 * Drop all entries of the archive.
+	 */
+	public void release(Path archive) {
+		archiveEntries.remove(archive);
+	}
+	
+	/**
+	 * Number of entries that were rejected as duplicates.
+	 */
+	public int getSuppressed() {
+		return suppressed.get();
+	}
+	
+	public void clear() {
+		archiveEntries.clear();
+		suppressed.set(0);
+	}
+}
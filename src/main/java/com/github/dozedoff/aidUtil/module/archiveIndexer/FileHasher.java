@@ -22,13 +22,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.LinkedBlockingQueue;
 
-import com.github.dozedoff.commonj.file.BinaryFileReader;
-import com.github.dozedoff.commonj.hash.HashMaker;
+import com.github.dozedoff.aidUtil.util.StreamingHasher;
 
 public class FileHasher {
 	LinkedBlockingQueue<ArchiveFile> inputQueue, outputQueue;
-	HashMaker hashMaker = new HashMaker();
-	BinaryFileReader binaryFileReader = new BinaryFileReader();
+	StreamingHasher hasher = new StreamingHasher();
+	
+	public FileHasher() {
+		this(null, null);
+	}
 	
 	public FileHasher(LinkedBlockingQueue<ArchiveFile> inputQueue, LinkedBlockingQueue<ArchiveFile> outputQueue) {
 		this.inputQueue = inputQueue;
@@ -40,13 +42,20 @@ public class FileHasher {
 		
 		while(! inputQueue.isEmpty()){
 			archiveFile = inputQueue.take();
-			archiveFile.setHash(hashFile(archiveFile.getFilePath()));
-			archiveFile.setSize(Files.size(archiveFile.getFilePath()));
+			hashFile(archiveFile);
 			outputQueue.put(archiveFile);
 		}
 	}
 	
+	/**
+	 * Set the hash and size of the file. The instance is not thread safe.
+	 */
+	public void hashFile(ArchiveFile archiveFile) throws IOException {
+		archiveFile.setHash(hashFile(archiveFile.getFilePath()));
+		archiveFile.setSize(Files.size(archiveFile.getFilePath()));
+	}
+	
 	private String hashFile(Path filepath) throws IOException {
-		return hashMaker.hash(binaryFileReader.get(filepath.toFile()));
+		return hasher.hash(filepath);
 	}
 }
@@ -0,0 +1,64 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.archiveIndexer;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedList;
+import java.util.Locale;
+
+/**
+ * Decides which archive entries are indexed. Used for unpacked archives and for
+ * archives read in-process, so both index the same files.
+ */
+public abstract class ImageFinder {
+	private static final String[] IMAGE_EXTENSIONS = {".jpg", ".jpeg", ".png", ".gif"};
+	
+	public static LinkedList<Path> find(Path directory) throws IOException {
+		final LinkedList<Path> images = new LinkedList<>();
+		
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if(attrs.isRegularFile() && isImage(file.getFileName().toString())){
+					images.add(file);
+				}
+				
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		
+		return images;
+	}
+	
+	public static boolean isImage(String name) {
+		String lowerCase = name.toLowerCase(Locale.ENGLISH);
+		
+		for(String extension : IMAGE_EXTENSIONS){
+			if(lowerCase.endsWith(extension)){
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
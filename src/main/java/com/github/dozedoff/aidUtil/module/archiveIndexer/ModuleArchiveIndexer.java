@@ -19,11 +19,20 @@ package com.github.dozedoff.aidUtil.module.archiveIndexer;
 
 import java.awt.Container;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JLabel;
@@ -39,14 +48,34 @@ import net.miginfocom.swing.MigLayout;
 import com.github.dozedoff.aidUtil.app.Settings;
 import com.github.dozedoff.aidUtil.module.MaintenanceModule;
 import com.github.dozedoff.aidUtil.module.archiveIndexer.DatabaseWorker.OperationMode;
+import com.github.dozedoff.aidUtil.util.ByteBudget;
 import com.github.dozedoff.commonj.file.FileInfo;
-import com.github.dozedoff.commonj.file.FileWalker;
 
 public class ModuleArchiveIndexer extends MaintenanceModule {
+	private static final String SLOT_FOLDER_PREFIX = "slot";
+	private static final long HASH_BYTE_BUDGET = 512 * 1024 * 1024; // bytes of unpacked files waiting to be hashed
+	private static final int OUTPUT_QUEUE_SIZE = 1000;
+	private static final long CANCEL_TIMEOUT = 30; // seconds to wait for threads after a cancel
+	
 	private ArchiveUnpacker unpacker;
-	private FileHasher hasher;
 	private DatabaseHandler dbHandler;
 	private DatabaseWorker dbWorker;
+	private ThreadPoolExecutor hashPool;
+	private UnpackWorker[] unpackWorkers = new UnpackWorker[0];
+	
+	private LinkedBlockingQueue<Path> archiveQueue;
+	private LinkedBlockingQueue<ArchiveFile> outputQueue;
+	private final AtomicInteger archivesProcessed = new AtomicInteger();
+	private ByteBudget hashBudget;
+	private final DuplicateFilter duplicateFilter = new DuplicateFilter();
+	private volatile boolean stop = false;
+	
+	private final ThreadLocal<FileHasher> threadHasher = new ThreadLocal<FileHasher>() {
+		@Override
+		protected FileHasher initialValue() {
+			return new FileHasher();
+		}
+	};
 	
 	JTextField tempPathField;
 	JRadioButton indexMode, dnwMode;
@@ -91,8 +120,8 @@ public class ModuleArchiveIndexer extends MaintenanceModule {
 
 	@Override
 	public void start() {
-		LinkedBlockingQueue<ArchiveFile> inputQueue, outputQueue;
 		Path tempFolder, appPath;
+		stop = false;
 
 		try {
 			info("Searching for archives...");
@@ -111,31 +140,115 @@ public class ModuleArchiveIndexer extends MaintenanceModule {
 		
 		tempFolder = Paths.get(tempPathField.getText());
 		
-		inputQueue = new LinkedBlockingQueue<>();
-		outputQueue = new LinkedBlockingQueue<>();
-		hasher = new FileHasher(inputQueue, outputQueue);
+		int unpackSlots = Settings.getInstance().getArchiveUnpackSlots();
+		int hashThreads = Settings.getInstance().getArchiveHashThreads();
+		
+		archiveQueue = new LinkedBlockingQueue<>(foundArchives);
+		outputQueue = new LinkedBlockingQueue<>(OUTPUT_QUEUE_SIZE);
+		archivesProcessed.set(0);
+		duplicateFilter.clear();
+		
+		// the task queue is bounded by the hash budget, unpack workers block until there is room
+		hashBudget = new ByteBudget(HASH_BYTE_BUDGET);
+		hashPool = new ThreadPoolExecutor(hashThreads, hashThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
 		dbHandler = new DatabaseHandler(getConnectionPool());
-		dbWorker = new DatabaseWorker(dbHandler, outputQueue, new PathRewriter(tempFolder), getOpMode());
+		dbWorker = new DatabaseWorker(dbHandler, outputQueue, getOpMode());
 		logger.info("Operation mode is {}", getOpMode());
-		startThreads();
 		
-		LinkedList<Path> images;
+		unpackWorkers = new UnpackWorker[unpackSlots];
+		for(int i = 0; i < unpackSlots; i++){
+			unpackWorkers[i] = new UnpackWorker(i, tempFolder);
+		}
 		
 		info("Starting to index archives...");
-		logger.info("Starting to index archives...");
-		int counter = 0;
-		for(Path archive : foundArchives){
-			setStatus(counter + "/" + foundArchives.size() + " - " + inputQueue.size());
-			unpackArchive(archive, tempFolder);
-			images = findImages(tempFolder);
-			addFilesToQueue(inputQueue, archive, images);
-			hashFiles();
-			deleteFilesInTempDir(tempFolder);
-			counter++;
+		logger.info("Starting to index archives with {} unpack slots and {} hash threads", unpackSlots, hashThreads);
+		startThreads();
+		
+		waitForUnpackWorkers();
+		waitForHashPool();
+		waitForDatabaseWorker();
+		
+		if(stop){
+			logger.info("Indexing cancelled, {} archives processed", archivesProcessed.get());
+			info("Indexing cancelled, " + archivesProcessed.get() + " archives processed");
+			return;
+		}
+		
+		reportDeadLetters();
+		logger.info("Suppressed {} duplicate archive entries", duplicateFilter.getSuppressed());
+		logger.info("Finished indexing, {} archives processed", archivesProcessed.get());
+		info("Finished indexing, " + archivesProcessed.get() + " archives processed");
+		setStatus("Finished");
+	}
+	
+	private void reportDeadLetters() {
+		List<FileInfo> deadLetters = dbWorker.getDeadLetters();
+		
+		if(! deadLetters.isEmpty()){
+			error(deadLetters.size() + " files could not be added to the database, see log for details");
+		}
+	}
+	
+	private void waitForUnpackWorkers() {
+		for(UnpackWorker worker : unpackWorkers){
+			waitForThread(worker);
+		}
+	}
+	
+	/**
+	 * Wait for the thread to die. After a cancel, only wait a limited time.
+	 */
+	private void waitForThread(Thread thread) {
+		try {
+			while(thread.isAlive()){
+				thread.join(1000);
+				
+				if(stop){
+					thread.join(TimeUnit.SECONDS.toMillis(CANCEL_TIMEOUT));
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.warn("Interrupted while waiting for {}", thread.getName());
+		}
+		
+		if(thread.isAlive()){
+			logger.warn("{} did not stop in time", thread.getName());
+		}
+	}
+	
+	private void waitForHashPool() {
+		hashPool.shutdown();
+		
+		try {
+			while(! hashPool.awaitTermination(1, TimeUnit.SECONDS)){
+				if(stop){
+					hashPool.awaitTermination(CANCEL_TIMEOUT, TimeUnit.SECONDS);
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.warn("Interrupted while waiting for the hash pool");
+		}
+	}
+	
+	/**
+	 * Signal the end of the stream and wait until all hashed files have been written.
+	 */
+	private void waitForDatabaseWorker() {
+		if(! stop){
+			try {
+				outputQueue.put(DatabaseWorker.END_OF_STREAM);
+			} catch (InterruptedException e) {
+				logger.warn("Interrupted while queuing end of stream");
+			}
 		}
 		
-		logger.info("Finished indexing, {} archives processed", foundArchives.size());
-		info("Finished indexing, " + foundArchives.size() + " archives processed");
+		waitForThread(dbWorker);
+	}
+	
+	private void updateStatus() {
+		setStatus(archivesProcessed.get() + "/" + foundArchives.size() + " - " + hashPool.getQueue().size());
 	}
 	
 	private void unpackArchive(Path archive, Path tempFolder) {
@@ -153,7 +266,7 @@ public class ModuleArchiveIndexer extends MaintenanceModule {
 		LinkedList<Path> foundfiles = new LinkedList<>();
 		
 		try {
-			foundfiles = FileWalker.getAllImages(directory);
+			foundfiles = ImageFinder.find(directory);
 			logger.info("Found {} files in directory {}", foundfiles.size(), directory);
 		} catch (IOException e) {
 			logger.warn("Failed to find images in directory {}", directory, e);
@@ -163,15 +276,39 @@ public class ModuleArchiveIndexer extends MaintenanceModule {
 		return foundfiles;
 	}
 	
-	private void addFilesToQueue(LinkedBlockingQueue<ArchiveFile> inputQueue, Path archive, List<Path> images) {
+	private List<Future<?>> addFilesToQueue(Path archive, Path unpackFolder, List<Path> images, PathRewriter reWriter) throws InterruptedException {
 		logger.info("Adding {} images to queue for archive {}", images.size(), archive);
+		LinkedList<Future<?>> pending = new LinkedList<>();
+		
 			for(Path file : images){
-				FileInfo info = new FileInfo(file);
-				ArchiveFile archiveFile = new ArchiveFile(info, archive);
-				if(!inputQueue.contains(archiveFile)){
-					inputQueue.add(archiveFile);
+				if(duplicateFilter.add(archive, unpackFolder.relativize(file))){
+					FileInfo info = new FileInfo(file);
+					ArchiveFile archiveFile = new ArchiveFile(info, archive);
+					pending.add(submitHashTask(archiveFile, reWriter));
 				}
 			}
+			
+		return pending;
+	}
+	
+	private Future<?> submitHashTask(ArchiveFile archiveFile, PathRewriter reWriter) throws InterruptedException {
+		long size = fileSize(archiveFile.getFilePath());
+		hashBudget.acquire(size);
+		
+		try {
+			return hashPool.submit(new HashTask(archiveFile, reWriter, size));
+		} catch (RejectedExecutionException e) {
+			hashBudget.release(size);
+			throw new InterruptedException("Hash pool has been shut down");
+		}
+	}
+	
+	private long fileSize(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return 0;
+		}
 	}
 	
 	private OperationMode getOpMode(){
@@ -188,10 +325,24 @@ public class ModuleArchiveIndexer extends MaintenanceModule {
 	
 	private void startThreads() {
 		dbWorker.start();
+		
+		for(UnpackWorker worker : unpackWorkers){
+			worker.start();
+		}
 	}
 	
 	private void stopThreads() {
-		dbWorker.interrupt();
+		for(UnpackWorker worker : unpackWorkers){
+			worker.interrupt();
+		}
+		
+		if(hashPool != null){
+			hashPool.shutdownNow();
+		}
+		
+		if(dbWorker != null){
+			dbWorker.interrupt();
+		}
 	}
 	
 	private void deleteFilesInTempDir(Path path) {
@@ -203,20 +354,179 @@ public class ModuleArchiveIndexer extends MaintenanceModule {
 		}
 	}
 	
-	private void hashFiles() {
-		try {
-			hasher.hashFiles();
-		} catch (InterruptedException e) {
+	/**
+	 * Unpacks archives into it's own slot folder and hands the files to the hash pool.
+	 * The slot folder is only cleared once all files of the archive have been hashed,
+	 * while other slots continue unpacking.
+	 * Archives that can be read in-process are hashed directly without unpacking.
+	 */
+	/**
+	 * Outcome of reading an archive without unpacking it.
+	 */
+	private enum ReadResult {
+		DONE, UNREADABLE, CANCELLED
+	}
+	
+	class UnpackWorker extends Thread {
+		private final Path slotFolder;
+		private final PathRewriter reWriter;
+		private final ArchiveReader archiveReader = new ZipArchiveReader(hashPool, hashBudget);
+		
+		public UnpackWorker(int slot, Path tempFolder) {
+			super("Unpack worker " + slot);
+			this.slotFolder = tempFolder.resolve(SLOT_FOLDER_PREFIX + slot);
+			this.reWriter = new PathRewriter(slotFolder);
+		}
+		
+		@Override
+		public void run() {
+			try {
+				Files.createDirectories(slotFolder);
+			} catch (IOException e) {
+				logger.error("Failed to create slot folder {}", slotFolder, e);
+				error("Failed to create temp folder: " + e.getMessage());
+				return;
+			}
 			
-		} catch (IOException e) {
-			logger.warn("Failed to hash files", e );
-			error("Failed to hash file: " + e.getMessage());
+			Path archive;
+			
+			while(! stop && ! isInterrupted() && (archive = archiveQueue.poll()) != null){
+				processArchive(archive);
+			}
+		}
+		
+		private void processArchive(Path archive) {
+			if(readOrUnpackArchive(archive)){
+				// entries of a cancelled archive are dropped when the next run starts
+				duplicateFilter.release(archive);
+			}
+		}
+		
+		/**
+		 * @return false if the archive was cancelled before all of its files were queued
+		 */
+		private boolean readOrUnpackArchive(Path archive) {
+			if(archiveReader.canRead(archive)){
+				ReadResult result = readInProcess(archive);
+				
+				if(result == ReadResult.CANCELLED){
+					return false;
+				}
+				
+				if(result == ReadResult.DONE){
+					archivesProcessed.incrementAndGet();
+					updateStatus();
+					return true;
+				}
+			}
+			
+			unpackArchive(archive, slotFolder);
+			
+			if(stop || isInterrupted()){
+				deleteFilesInTempDir(slotFolder);
+				return false;
+			}
+			
+			LinkedList<Path> images = findImages(slotFolder);
+			
+			try {
+				List<Future<?>> pending = addFilesToQueue(archive, slotFolder, images, reWriter);
+				waitForHashing(pending);
+				archivesProcessed.incrementAndGet();
+				updateStatus();
+			} catch (InterruptedException e) {
+				interrupt();
+			}
+			
+			deleteFilesInTempDir(slotFolder);
+			return ! isInterrupted();
+		}
+		
+		private ReadResult readInProcess(Path archive) {
+			List<ArchiveFile> files;
+			
+			try {
+				info("Reading " + archive.getFileName().toString());
+				files = archiveReader.read(archive);
+			} catch (InterruptedIOException e) {
+				interrupt();
+				return ReadResult.CANCELLED;
+			} catch (IOException e) {
+				logger.info("Unable to read archive {} in-process, using 7z instead", archive, e);
+				return ReadResult.UNREADABLE;
+			}
+			
+			try {
+				for(ArchiveFile file : files){
+					if(duplicateFilter.add(archive, archive.relativize(file.getFilePath()))){
+						outputQueue.put(file);
+					}
+				}
+			} catch (InterruptedException e) {
+				interrupt();
+				return ReadResult.CANCELLED;
+			}
+			
+			return ReadResult.DONE;
+		}
+		
+		private void waitForHashing(List<Future<?>> pending) throws InterruptedException {
+			for(Future<?> future : pending){
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					logger.warn("Hash task failed", e.getCause());
+				} catch (CancellationException e) {
+					logger.debug("Hash task was cancelled");
+				}
+			}
+		}
+	}
+	
+	class HashTask implements Runnable {
+		private final ArchiveFile archiveFile;
+		private final PathRewriter reWriter;
+		private final long size;
+		
+		public HashTask(ArchiveFile archiveFile, PathRewriter reWriter, long size) {
+			this.archiveFile = archiveFile;
+			this.reWriter = reWriter;
+			this.size = size;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				threadHasher.get().hashFile(archiveFile);
+			} catch (IOException e) {
+				if(! stop){
+					logger.warn("Failed to hash file {}", archiveFile.getFilePath(), e);
+					error("Failed to hash file: " + e.getMessage());
+				}
+				return;
+			} finally {
+				hashBudget.release(size);
+			}
+			
+			reWriter.reWritePath(archiveFile);
+			
+			try {
+				outputQueue.put(archiveFile);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 	
 	@Override
 	public void Cancel() {
-		// TODO Auto-generated method stub
-
+		stop = true;
+		logger.info("Cancelling archive indexing");
+		
+		if(archiveQueue != null){
+			archiveQueue.clear();
+		}
+		
+		stopThreads();
 	}
 }
@@ -44,4 +44,18 @@ public class PathRewriter {
 		Path reWrittenPath = archivePath.resolve(relativeSource);
 		archiveFile.setFile(reWrittenPath);
 	}
+	
+	/**
+	 * Create the path for an entry that was read directly from the archive,
+	 * matching the path the entry would get when unpacked to the temp directory.
+	 */
+	public static Path entryPath(Path archivePath, String entryName) {
+		String relativeName = entryName;
+		
+		while(relativeName.startsWith("/")){
+			relativeName = relativeName.substring(1);
+		}
+		
+		return archivePath.resolve(relativeName);
+	}
 }
@@ -0,0 +1,219 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.archiveIndexer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.aidUtil.util.ByteBudget;
+import com.github.dozedoff.aidUtil.util.StreamingHasher;
+import com.github.dozedoff.commonj.file.FileInfo;
+
+/**
+ * Hashes images in zip archives directly from the archive stream.
+ * If a hash pool is set, entries are decompressed and hashed on the pool,
+ * limited by the uncompressed size of the entries waiting to be hashed.
+ */
+public class ZipArchiveReader implements ArchiveReader {
+	private static final String ZIP_EXTENSION = ".zip";
+	
+	private static final ThreadLocal<StreamingHasher> threadHasher = new ThreadLocal<StreamingHasher>() {
+		@Override
+		protected StreamingHasher initialValue() {
+			return new StreamingHasher();
+		}
+	};
+	
+	private final ExecutorService hashPool;
+	private final ByteBudget hashBudget;
+	private Logger logger = LoggerFactory.getLogger(ZipArchiveReader.class);
+	
+	/**
+	 * Hash entries in the calling thread.
+	 */
+	public ZipArchiveReader() {
+		this(null, null);
+	}
+	
+	/**
+	 * @param hashPool pool the entries are hashed on
+	 * @param hashBudget bytes of entries submitted to the pool and not hashed yet
+	 */
+	public ZipArchiveReader(ExecutorService hashPool, ByteBudget hashBudget) {
+		this.hashPool = hashPool;
+		this.hashBudget = hashBudget;
+	}
+	
+	@Override
+	public boolean canRead(Path archive) {
+		return archive.getFileName().toString().toLowerCase(Locale.ENGLISH).endsWith(ZIP_EXTENSION);
+	}
+
+	@Override
+	public List<ArchiveFile> read(Path archive) throws IOException {
+		LinkedList<ArchiveFile> files = new LinkedList<>();
+		
+		try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+			LinkedList<Future<ArchiveFile>> pending = new LinkedList<>();
+			
+			try {
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+				
+				while(entries.hasMoreElements()){
+					if(Thread.currentThread().isInterrupted()){
+						throw new InterruptedIOException("Reading " + archive + " was interrupted");
+					}
+					
+					ZipEntry entry = entries.nextElement();
+					
+					if(entry.isDirectory() || ! ImageFinder.isImage(entry.getName())){
+						continue;
+					}
+					
+					pending.add(submit(new EntryHashTask(zipFile, entry, archive)));
+				}
+				
+				collect(pending, files);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Reading " + archive + " was interrupted");
+			} finally {
+				awaitAll(pending);
+			}
+		} catch (IllegalArgumentException e) {
+			// entry names that are not UTF-8, the archive can still be unpacked with 7z
+			ZipException ze = new ZipException("Failed to read entries of " + archive + ": " + e.getMessage());
+			ze.initCause(e);
+			throw ze;
+		}
+		
+		logger.info("Read {} images from archive {}", files.size(), archive);
+		return files;
+	}
+	
+	private Future<ArchiveFile> submit(EntryHashTask task) throws InterruptedException {
+		if(hashPool == null){
+			FutureTask<ArchiveFile> future = new FutureTask<>(task);
+			future.run();
+			return future;
+		}
+		
+		hashBudget.acquire(task.size);
+		
+		try {
+			return hashPool.submit(task);
+		} catch (RejectedExecutionException e) {
+			hashBudget.release(task.size);
+			throw new InterruptedException("Hash pool has been shut down");
+		}
+	}
+	
+	/**
+	 * Get the results in entry order. The first failed entry fails the whole archive.
+	 */
+	private void collect(List<Future<ArchiveFile>> pending, List<ArchiveFile> files) throws IOException, InterruptedException {
+		while(! pending.isEmpty()){
+			try {
+				files.add(pending.get(0).get());
+				pending.remove(0);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof IOException){
+					throw (IOException) e.getCause();
+				}
+				
+				throw new IOException("Failed to hash entry", e.getCause());
+			}
+		}
+	}
+	
+	/**
+	 * The zip file is closed once reading is done, so entries still being hashed must finish first.
+	 * Tasks are cancelled instead if the thread has been interrupted.
+	 */
+	private void awaitAll(List<Future<ArchiveFile>> pending) {
+		for(Future<ArchiveFile> future : pending){
+			if(Thread.currentThread().isInterrupted()){
+				future.cancel(true);
+				continue;
+			}
+			
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.cancel(true);
+			} catch (ExecutionException e) {
+				logger.debug("Hashing entry failed after the archive had already failed", e.getCause());
+			}
+		}
+	}
+	
+	class EntryHashTask implements Callable<ArchiveFile> {
+		private final ZipFile zipFile;
+		private final ZipEntry entry;
+		private final Path archive;
+		private final long size;
+		
+		public EntryHashTask(ZipFile zipFile, ZipEntry entry, Path archive) {
+			this.zipFile = zipFile;
+			this.entry = entry;
+			this.archive = archive;
+			this.size = Math.max(entry.getSize(), 0);
+		}
+		
+		@Override
+		public ArchiveFile call() throws IOException {
+			try {
+				StreamingHasher hasher = threadHasher.get();
+				String hash;
+				
+				try (InputStream entryStream = zipFile.getInputStream(entry)) {
+					hash = hasher.hash(entryStream);
+				}
+				
+				Path entryPath = PathRewriter.entryPath(archive, entry.getName());
+				ArchiveFile archiveFile = new ArchiveFile(new FileInfo(entryPath, hash), archive);
+				archiveFile.setSize(hasher.getBytesHashed());
+				
+				return archiveFile;
+			} finally {
+				if(hashBudget != null){
+					hashBudget.release(size);
+				}
+			}
+		}
+	}
+}
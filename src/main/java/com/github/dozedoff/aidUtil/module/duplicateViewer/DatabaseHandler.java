@@ -21,6 +21,10 @@ import io.AidDAO;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,10 +33,21 @@ import com.github.dozedoff.commonj.io.ConnectionPool;
 
 public class DatabaseHandler {
 	private final AidDAO sql;
+	private final ConnectionPool connPool;
 	private final HashMap<String, Path> tagMap;
 	
+	private final static String PAGE_HASHES = "SELECT DISTINCT fd.`id` FROM `fileduplicate` AS fd "
+			+ "WHERE fd.`id` > ? AND EXISTS (SELECT 1 FROM `fileindex` AS fi WHERE fi.`id` = fd.`id`) "
+			+ "ORDER BY fd.`id` LIMIT ?";
+	private final static String PAGE_ENTRIES = "SELECT t.`id` AS hash, l.`location`, CONCAT(d.`dirpath`, f.`filename`) FROM `%s` AS t "
+			+ "JOIN `dirlist` AS d ON t.`dir` = d.`id` "
+			+ "JOIN `filelist` AS f ON t.`filename` = f.`id` "
+			+ "JOIN `location_tags` AS l ON t.`location` = l.`tag_id` "
+			+ "WHERE t.`id` IN (%s)";
+	
 	public DatabaseHandler(ConnectionPool connPool, HashMap<String, Path> tagMap) {
 		this.sql = new AidDAO(connPool);
+		this.connPool = connPool;
 		this.tagMap = tagMap;
 	}
 	
@@ -42,32 +57,94 @@ public class DatabaseHandler {
 		return duplicates;
 	}
 	
-	private LinkedList<Entry> processDuplicateData(List<String[]> data){
+	/**
+	 * Load the duplicates and their indexed originals for the next hashes, ordered by hash.
+	 * All entries of a hash are in the same page.
+	 * 
+	 * @param afterHash only hashes that sort after this one are loaded, use an empty string for the first page
+	 * @param pageSize maximum number of hashes to load
+	 * @return the entries of up to pageSize hashes, empty if there are no more
+	 */
+	public DuplicatePage getDuplicatePage(String afterHash, int pageSize) throws SQLException {
 		LinkedList<Entry> entries = new LinkedList<>();
 		
-		for(String[] s : data){
-			Entry entry;
+		try (Connection con = connPool.getConnection()) {
+			List<String> hashes = loadPageHashes(con, afterHash, pageSize);
 			
-			String hash = s[0];
-			String location = s[1];
-			String relvativeDuplicatePath = s[2];
-			Path entryPath, rootPath;
+			if(hashes.isEmpty()){
+				return new DuplicatePage(hashes, entries);
+			}
+			
+			StringBuilder placeholders = new StringBuilder();
+			
+			for(int i = 0; i < hashes.size(); i++){
+				placeholders.append(i == 0 ? "?" : ",?");
+			}
 			
-			rootPath = getLocationPath(location);
+			String query = String.format(PAGE_ENTRIES, "fileindex", placeholders) + " UNION ALL "
+					+ String.format(PAGE_ENTRIES, "fileduplicate", placeholders) + " ORDER BY hash";
 			
-			if(rootPath != null){
-				entryPath = rootPath.resolve(relvativeDuplicatePath);
-			} else {
-				entryPath = Paths.get(relvativeDuplicatePath);
+			try (PreparedStatement stmt = con.prepareStatement(query)) {
+				int index = 1;
+				
+				for(int i = 0; i < 2; i++){
+					for(String hash : hashes){
+						stmt.setString(index++, hash);
+					}
+				}
+				
+				try (ResultSet rs = stmt.executeQuery()) {
+					while(rs.next()){
+						entries.add(createEntry(rs.getString(1), rs.getString(2), rs.getString(3)));
+					}
+				}
 			}
 			
-			entry = new Entry(hash, entryPath);
-			entries.add(entry);
+			return new DuplicatePage(hashes, entries);
+		}
+	}
+	
+	private List<String> loadPageHashes(Connection con, String afterHash, int pageSize) throws SQLException {
+		List<String> hashes = new LinkedList<>();
+		
+		try (PreparedStatement stmt = con.prepareStatement(PAGE_HASHES)) {
+			stmt.setString(1, afterHash);
+			stmt.setInt(2, pageSize);
+			
+			try (ResultSet rs = stmt.executeQuery()) {
+				while(rs.next()){
+					hashes.add(rs.getString(1));
+				}
+			}
+		}
+		
+		return hashes;
+	}
+	
+	private LinkedList<Entry> processDuplicateData(List<String[]> data){
+		LinkedList<Entry> entries = new LinkedList<>();
+		
+		for(String[] s : data){
+			entries.add(createEntry(s[0], s[1], s[2]));
 		}
 		
 		return entries;
 	}
 	
+	private Entry createEntry(String hash, String location, String relvativeDuplicatePath) {
+		Path entryPath, rootPath;
+		
+		rootPath = getLocationPath(location);
+		
+		if(rootPath != null){
+			entryPath = rootPath.resolve(relvativeDuplicatePath);
+		} else {
+			entryPath = Paths.get(relvativeDuplicatePath);
+		}
+		
+		return new Entry(hash, entryPath);
+	}
+	
 	private Path getLocationPath(String location) {
 		return tagMap.get(location);
 	}
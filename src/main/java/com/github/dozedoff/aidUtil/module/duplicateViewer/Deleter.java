@@ -20,9 +20,10 @@ package com.github.dozedoff.aidUtil.module.duplicateViewer;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.LinkedList;
 
-import javax.swing.DefaultListModel;
+import javax.swing.ListModel;
 
 public class Deleter {
 	DatabaseHandler dbHandler;
@@ -31,11 +32,17 @@ public class Deleter {
 		this.dbHandler = dbHandler;
 	}
 
-	public void deleteAllSelected(DefaultListModel<DuplicateGroup> groupModel) throws IOException {
+	public void deleteAllSelected(ListModel<DuplicateGroup> groupModel) throws IOException {
 		int size = groupModel.getSize();
 
 		for (int i = 0; i < size; i++) {
-			DuplicateGroup group = groupModel.get(i);
+			DuplicateGroup group = groupModel.getElementAt(i);
+			deleteSelected(group);
+		}
+	}
+
+	public void deleteAllSelected(Collection<DuplicateGroup> groups) throws IOException {
+		for (DuplicateGroup group : groups) {
 			deleteSelected(group);
 		}
 	}
@@ -52,6 +59,7 @@ public class Deleter {
 	private void deleteEntryFromDisk(Entry entry) throws IOException {
 		Path entryPath = entry.getPath();
 		Files.delete(entryPath);
+		FileMetadataCache.getInstance().invalidate(entryPath);
 		dbHandler.deleteFromDuplicates(entry);
 	}
 
@@ -18,10 +18,10 @@
 package com.github.dozedoff.aidUtil.module.duplicateViewer;
 
 import java.awt.Color;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.LinkedList;
+import java.util.Locale;
 
 public class DuplicateGroup {
 	static int groupRunningNumber = 0;
@@ -49,6 +49,14 @@ public class DuplicateGroup {
 		this.imageHashValue = imageHashValue;
 	}
 	
+	/**
+	 * For groups that are numbered by their position in a list.
+	 */
+	DuplicateGroup(String imageHashValue, int groupId){
+		this.groupId = groupId;
+		this.imageHashValue = imageHashValue;
+	}
+	
 	private void setColor() {
 		if(groupId % 2 == 0){
 			color = Color.black;
@@ -136,7 +144,8 @@ public class DuplicateGroup {
 	}
 	
 	public Path getImagepath() {
-		if((imagePath == null) || (! Files.exists(imagePath))) {
+		// the displayed image is always checked on disk, it may have been deleted by someone else
+		if((imagePath == null) || (! FileMetadataCache.getInstance().refresh(imagePath).exists())) {
 			imagePath = searchForImagePath();
 		}
 		
@@ -175,7 +184,7 @@ public class DuplicateGroup {
 			}
 			
 			Path entryPath = entry.getPath();
-			allExist = allExist && Files.exists(entryPath);
+			allExist = allExist && FileMetadataCache.getInstance().exists(entryPath);
 		}
 		
 		return allExist;
@@ -189,7 +198,7 @@ public class DuplicateGroup {
 			
 			for(Entry entry : entries) {
 				Path path = entry.getPath();
-				if(Files.exists(path)) {
+				if(FileMetadataCache.getInstance().exists(path)) {
 					imgPath = path;
 					break;
 				}
@@ -228,6 +237,16 @@ public class DuplicateGroup {
 		return false;
 	}
 	
+	@Override
+	public int hashCode() {
+		if(imageHashValue == null){
+			return 0;
+		}
+		
+		// consistent with the case insensitive equals
+		return imageHashValue.toUpperCase(Locale.ENGLISH).hashCode();
+	}
+	
 	@Override
 	public String toString() {
 		return String.valueOf(groupId);
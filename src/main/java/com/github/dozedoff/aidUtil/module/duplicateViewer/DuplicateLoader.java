@@ -0,0 +1,85 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.duplicateViewer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Loads duplicate groups page by page, in hash order. Every page contains
+ * complete groups, so it can be displayed as soon as it is loaded.
+ */
+public class DuplicateLoader {
+	private final DatabaseHandler dbHandler;
+	private final int pageSize;
+	
+	private String lastHash = "";
+	private boolean finished = false;
+	private int loadedEntries = 0, loadedGroups = 0;
+	
+	/**
+	 * @param pageSize number of groups per page
+	 */
+	public DuplicateLoader(DatabaseHandler dbHandler, int pageSize) {
+		this.dbHandler = dbHandler;
+		this.pageSize = pageSize;
+	}
+	
+	/**
+	 * Load the groups of the next page.
+	 * 
+	 * @return the groups, empty once all pages have been loaded
+	 */
+	public synchronized List<DuplicateGroup> nextPage() throws SQLException {
+		if(finished){
+			return new ArrayList<>();
+		}
+		
+		DuplicatePage page = dbHandler.getDuplicatePage(lastHash, pageSize);
+		LinkedList<Entry> entries = page.getEntries();
+		List<DuplicateGroup> groups = GroupListCreator.createList(entries);
+		
+		// a hash without entries has no group, only the number of hashes tells if this is the last page
+		if(page.getHashCount() < pageSize){
+			finished = true;
+		}
+		
+		if(page.getLastHash() != null){
+			lastHash = page.getLastHash();
+		}
+		
+		loadedEntries += entries.size();
+		loadedGroups += groups.size();
+		
+		return groups;
+	}
+	
+	public synchronized boolean hasMore() {
+		return ! finished;
+	}
+	
+	public synchronized int getLoadedEntries() {
+		return loadedEntries;
+	}
+	
+	public synchronized int getLoadedGroups() {
+		return loadedGroups;
+	}
+}
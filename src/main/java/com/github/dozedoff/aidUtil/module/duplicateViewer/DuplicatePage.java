@@ -0,0 +1,57 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.duplicateViewer;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * One page of duplicates, with the hashes that were selected for the page.
+ * A hash can have no entries, if its rows could not be resolved.
+ */
+public class DuplicatePage {
+	private final List<String> hashes;
+	private final LinkedList<Entry> entries;
+	
+	public DuplicatePage(List<String> hashes, LinkedList<Entry> entries) {
+		this.hashes = hashes;
+		this.entries = entries;
+	}
+	
+	public LinkedList<Entry> getEntries() {
+		return entries;
+	}
+	
+	/**
+	 * @return number of hashes in this page, fewer than the page size if this is the last page
+	 */
+	public int getHashCount() {
+		return hashes.size();
+	}
+	
+	/**
+	 * @return the highest hash of this page, or null if the page is empty
+	 */
+	public String getLastHash() {
+		if(hashes.isEmpty()){
+			return null;
+		}
+		
+		return hashes.get(hashes.size() - 1);
+	}
+}
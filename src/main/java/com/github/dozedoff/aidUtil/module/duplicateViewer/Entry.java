@@ -17,10 +17,7 @@
  */
 package com.github.dozedoff.aidUtil.module.duplicateViewer;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileTime;
 
 public class Entry implements Comparable<Entry>{
 	private boolean selected = false;
@@ -70,19 +67,11 @@ public class Entry implements Comparable<Entry>{
 	}
 	
 	public long getLastModified() {
-		if(sourceExists()){
-			try {
-				FileTime fileTime = Files.getLastModifiedTime(path);
-				long lastModTime = fileTime.toMillis();
-				return lastModTime;
-			} catch (IOException e) {}
-		}
-		
-		return -1;
+		return FileMetadataCache.getInstance().getLastModified(path);
 	}
 
 	private boolean sourceExists() {
-		return Files.exists(path);
+		return FileMetadataCache.getInstance().exists(path);
 	}
 
 	@Override
@@ -0,0 +1,252 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.duplicateViewer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches whether files exist, their size and last modified time, so the viewer
+ * does not hit the disk every time an entry is checked. Values expire after a
+ * time to live and must be invalidated when a file is changed or deleted.
+ */
+public class FileMetadataCache {
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	
+	/** Directories with fewer requested files are not listed, the files are checked one by one. */
+	private static final int MIN_FILES_TO_LIST = 8;
+	
+	private static FileMetadataCache instance = null;
+	
+	private final ConcurrentHashMap<Path, Metadata> cache = new ConcurrentHashMap<>();
+	private final long ttlNanos;
+	
+	private static Logger logger = LoggerFactory.getLogger(FileMetadataCache.class);
+	
+	public static class Metadata {
+		private final boolean exists;
+		private final long size, lastModified, loadedAt;
+		
+		private Metadata(boolean exists, long size, long lastModified, long loadedAt) {
+			this.exists = exists;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.loadedAt = loadedAt;
+		}
+		
+		public boolean exists() {
+			return exists;
+		}
+		
+		/**
+		 * @return the file size, -1 if the file does not exist
+		 */
+		public long getSize() {
+			return size;
+		}
+		
+		/**
+		 * @return last modified time in milliseconds, -1 if the file does not exist
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+	
+	public FileMetadataCache(long ttl, TimeUnit unit) {
+		this.ttlNanos = unit.toNanos(ttl);
+	}
+	
+	/**
+	 * Cache shared by the duplicate viewer.
+	 */
+	public static synchronized FileMetadataCache getInstance() {
+		if(instance == null){
+			instance = new FileMetadataCache(DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * Get the metadata, the file is only read if there is no valid cached value.
+	 */
+	public Metadata get(Path path) {
+		Metadata metadata = cache.get(path);
+		
+		if(metadata == null || isExpired(metadata)){
+			metadata = refresh(path);
+		}
+		
+		return metadata;
+	}
+	
+	public boolean exists(Path path) {
+		return get(path).exists();
+	}
+	
+	/**
+	 * @return last modified time in milliseconds, -1 if the file does not exist
+	 */
+	public long getLastModified(Path path) {
+		return get(path).getLastModified();
+	}
+	
+	/**
+	 * Read the metadata from disk, ignoring any cached value.
+	 */
+	public Metadata refresh(Path path) {
+		Metadata metadata = read(path);
+		cache.put(path, metadata);
+		return metadata;
+	}
+	
+	public void invalidate(Path path) {
+		cache.remove(path);
+	}
+	
+	public void clear() {
+		cache.clear();
+	}
+	
+	/**
+	 * Load the metadata of all files. Files are grouped by directory, each directory
+	 * is listed once and only files found in the listing are read.
+	 * 
+	 * @param threads number of directories that are processed in parallel
+	 */
+	public void prefetch(Collection<Path> paths, int threads) throws InterruptedException {
+		Map<Path, List<Path>> directories = new HashMap<>();
+		
+		for(Path path : paths){
+			Path parent = path.getParent();
+			
+			if(parent == null || cache.containsKey(path)){
+				continue;
+			}
+			
+			List<Path> files = directories.get(parent);
+			
+			if(files == null){
+				files = new LinkedList<>();
+				directories.put(parent, files);
+			}
+			
+			files.add(path);
+		}
+		
+		if(directories.isEmpty()){
+			return;
+		}
+		
+		ExecutorService listers = Executors.newFixedThreadPool(Math.min(threads, directories.size()));
+		
+		try {
+			for(final Map.Entry<Path, List<Path>> directory : directories.entrySet()){
+				listers.execute(new Runnable() {
+					@Override
+					public void run() {
+						prefetchDirectory(directory.getKey(), directory.getValue());
+					}
+				});
+			}
+			
+			listers.shutdown();
+			listers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} finally {
+			listers.shutdownNow();
+		}
+	}
+	
+	private void prefetchDirectory(Path directory, List<Path> files) {
+		if(files.size() < MIN_FILES_TO_LIST){
+			for(Path file : files){
+				refresh(file);
+			}
+			
+			return;
+		}
+		
+		Set<Path> existing = new HashSet<>();
+		
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for(Path entry : stream){
+				existing.add(entry.getFileName());
+			}
+		} catch (NoSuchFileException | NotDirectoryException e) {
+			// nothing in it exists
+		} catch (IOException | DirectoryIteratorException e) {
+			logger.warn("Failed to list {}, checking files one by one", directory, e);
+			
+			for(Path file : files){
+				refresh(file);
+			}
+			
+			return;
+		}
+		
+		long now = System.nanoTime();
+		
+		for(Path file : files){
+			if(existing.contains(file.getFileName())){
+				refresh(file);
+			}else{
+				cache.put(file, missing(now));
+			}
+		}
+	}
+	
+	private boolean isExpired(Metadata metadata) {
+		return System.nanoTime() - metadata.loadedAt > ttlNanos;
+	}
+	
+	private Metadata read(Path path) {
+		long now = System.nanoTime();
+		
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return new Metadata(true, attributes.size(), attributes.lastModifiedTime().toMillis(), now);
+		} catch (IOException e) {
+			return missing(now);
+		}
+	}
+	
+	private Metadata missing(long now) {
+		return new Metadata(false, -1, -1, now);
+	}
+}
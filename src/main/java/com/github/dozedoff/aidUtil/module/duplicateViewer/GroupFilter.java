@@ -17,13 +17,26 @@
  */
 package com.github.dozedoff.aidUtil.module.duplicateViewer;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 public class GroupFilter {
+	public static final int DEFAULT_THREADS = 8;
+	public static final int DEFAULT_CHECKS_PER_ROOT = 2;
+	
+	private static final int PARTITION_SIZE = 256;
+	
+
 	public static void onlyVisibleTagGroups(List<DuplicateGroup> groups) {
 		Iterator<DuplicateGroup> ite = groups.iterator();
 
@@ -38,34 +51,111 @@ public class GroupFilter {
 	}
 
 	public static void onlyFullyValidGroups(List<DuplicateGroup> groups) {
-		Iterator<DuplicateGroup> ite = groups.iterator();
-
-		while (ite.hasNext()) {
-			DuplicateGroup group = ite.next();
-			LinkedList<Entry> entries = group.getEntries();
+		List<DuplicateGroup> valid;
+		
+		try {
+			valid = fullyValidGroups(groups, DEFAULT_THREADS, DEFAULT_CHECKS_PER_ROOT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		
+		groups.clear();
+		groups.addAll(valid);
+	}
 
-			if (hasRelativeEntries(entries) || hasInvalidEntries(entries)) {
-				ite.remove();
+	/**
+	 * Find the groups where all entries are absolute and exist. The groups are split
+	 * into partitions that are checked in parallel, the number of concurrent checks
+	 * on the same drive is limited so slow drives are not thrashed.
+	 * 
+	 * @param threads number of partitions checked in parallel
+	 * @param checksPerRoot number of files that are checked concurrently on the same root
+	 * @return a new list with the valid groups, in the original order
+	 */
+	public static List<DuplicateGroup> fullyValidGroups(List<DuplicateGroup> groups, int threads, final int checksPerRoot) throws InterruptedException {
+		final List<DuplicateGroup> all = new ArrayList<>(groups);
+		final ConcurrentHashMap<Path, Semaphore> rootLimits = new ConcurrentHashMap<>();
+		List<Future<boolean[]>> partitions = new LinkedList<>();
+		ExecutorService checkers = Executors.newFixedThreadPool(threads);
+		
+		try {
+			for (int start = 0; start < all.size(); start += PARTITION_SIZE) {
+				final List<DuplicateGroup> partition = all.subList(start, Math.min(all.size(), start + PARTITION_SIZE));
+				
+				partitions.add(checkers.submit(new Callable<boolean[]>() {
+					@Override
+					public boolean[] call() throws Exception {
+						return checkPartition(partition, rootLimits, checksPerRoot);
+					}
+				}));
+			}
+			
+			List<DuplicateGroup> valid = new ArrayList<>();
+			Iterator<DuplicateGroup> ite = all.iterator();
+			
+			for (Future<boolean[]> partition : partitions) {
+				for (boolean isValid : partition.get()) {
+					DuplicateGroup group = ite.next();
+					
+					if (isValid) {
+						valid.add(group);
+					}
+				}
 			}
+			
+			return valid;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Group validation failed", e.getCause());
+		} finally {
+			checkers.shutdownNow();
 		}
 	}
+	
+	private static boolean[] checkPartition(List<DuplicateGroup> partition, ConcurrentHashMap<Path, Semaphore> rootLimits, int checksPerRoot) throws InterruptedException {
+		boolean[] valid = new boolean[partition.size()];
+		int i = 0;
+		
+		for (DuplicateGroup group : partition) {
+			LinkedList<Entry> entries = group.getEntries();
+			valid[i++] = !hasRelativeEntries(entries) && !hasInvalidEntries(entries, rootLimits, checksPerRoot);
+		}
+		
+		return valid;
+	}
 
-	private static boolean hasInvalidEntries(List<Entry> entries) {
+	private static boolean hasInvalidEntries(List<Entry> entries, ConcurrentHashMap<Path, Semaphore> rootLimits, int checksPerRoot) throws InterruptedException {
 		if (entries.isEmpty()) {
 			return false;
 		}
 
-		boolean hasInvalid = false;
-
 		for (Entry entry : entries) {
-			if (hasInvalid) {
-				break;
-			}
 			Path entryPath = entry.getPath();
-			hasInvalid = !Files.exists(entryPath);
+			Semaphore rootLimit = getRootLimit(rootLimits, entryPath.getRoot(), checksPerRoot);
+			
+			rootLimit.acquire();
+			
+			try {
+				if (!FileMetadataCache.getInstance().exists(entryPath)) {
+					return true;
+				}
+			} finally {
+				rootLimit.release();
+			}
 		}
 
-		return hasInvalid;
+		return false;
+	}
+	
+	private static Semaphore getRootLimit(ConcurrentHashMap<Path, Semaphore> rootLimits, Path root, int checksPerRoot) {
+		Semaphore limit = rootLimits.get(root);
+		
+		if (limit == null) {
+			rootLimits.putIfAbsent(root, new Semaphore(checksPerRoot));
+			limit = rootLimits.get(root);
+		}
+		
+		return limit;
 	}
 
 	private static boolean hasRelativeEntries(List<Entry> entries) {
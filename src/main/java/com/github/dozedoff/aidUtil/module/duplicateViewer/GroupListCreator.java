@@ -17,43 +17,120 @@
  */
 package com.github.dozedoff.aidUtil.module.duplicateViewer;
 
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.github.dozedoff.aidUtil.util.HashKeyIntMap;
+import com.github.dozedoff.aidUtil.util.HashKeys;
 
+/**
+ * Groups entries by hash. Groups are in the order the first entry of each hash appears.
+ * The returned list is array-backed.
+ */
 public class GroupListCreator {
-	public static LinkedList<DuplicateGroup> createList(List<Entry> entries) {
-		LinkedHashMap<String, DuplicateGroup> groupMap = populateMap(entries);
-		LinkedList<DuplicateGroup> groupList = convertMapToList(groupMap);
-		return groupList;
+	public static List<DuplicateGroup> createList(List<Entry> entries) {
+		if(isOrderedByHash(entries)){
+			return groupRuns(entries);
+		}else{
+			return groupByKey(entries);
+		}
 	}
 	
-	private static LinkedHashMap<String, DuplicateGroup> populateMap(List<Entry> entries) {
-		LinkedHashMap<String, DuplicateGroup> groupMap = new LinkedHashMap<>();
-
+	private static boolean isOrderedByHash(List<Entry> entries) {
+		Iterator<Entry> ite = entries.iterator();
+		String previous = ite.hasNext() ? ite.next().getHash() : null;
+		
+		while(ite.hasNext()){
+			String hash = ite.next().getHash();
+			
+			if(hash.compareTo(previous) < 0){
+				return false;
+			}
+			
+			previous = hash;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Fast path for ordered entries, every run of equal hashes is a group.
+	 */
+	private static List<DuplicateGroup> groupRuns(List<Entry> entries) {
+		List<DuplicateGroup> groupList = new ArrayList<>();
+		DuplicateGroup current = null;
+		
 		for(Entry entry : entries) {
-			addEntryToMap(groupMap, entry);
+			String entryHash = entry.getHash();
+			
+			if(current == null || ! current.getImageHashValue().equals(entryHash)){
+				current = new DuplicateGroup(entryHash);
+				groupList.add(current);
+			}
+			
+			current.addEntry(entry);
 		}
-		return groupMap;
+		
+		return groupList;
 	}
 	
-	private static void addEntryToMap(Map<String, DuplicateGroup> groupMap, Entry entry) {
-		String entryHash = entry.getHash();
+	/**
+	 * Groups entries in any order, using the binary hash as key. Keys only hold
+	 * part of the hash, so the full hash is compared before an entry is added.
+	 */
+	private static List<DuplicateGroup> groupByKey(List<Entry> entries) {
+		HashKeyIntMap groupIndex = new HashKeyIntMap(entries.size());
+		ArrayList<DuplicateGroup> groups = new ArrayList<>();
+		Map<String, Integer> collisions = null;
 		
-		if(groupMap.containsKey(entryHash)){
-			DuplicateGroup existingGroup = groupMap.get(entryHash);
-			existingGroup.addEntry(entry);
-		}else{
-			DuplicateGroup newGroup = new DuplicateGroup(entryHash);
-			newGroup.addEntry(entry);
-			groupMap.put(entryHash, newGroup);
+		for(Entry entry : entries) {
+			String entryHash = entry.getHash();
+			long high = keyHigh(entryHash), low = keyLow(entryHash);
+			int index = groupIndex.get(high, low);
+			
+			if(index == HashKeyIntMap.NO_VALUE){
+				groupIndex.put(high, low, groups.size());
+				groups.add(new DuplicateGroup(entryHash));
+				index = groups.size() - 1;
+			}else if(! groups.get(index).getImageHashValue().equals(entryHash)){
+				// different hash with the same key, rare enough for a plain map
+				if(collisions == null){
+					collisions = new HashMap<>();
+				}
+				
+				Integer collisionIndex = collisions.get(entryHash);
+				
+				if(collisionIndex == null){
+					collisionIndex = groups.size();
+					collisions.put(entryHash, collisionIndex);
+					groups.add(new DuplicateGroup(entryHash));
+				}
+				
+				index = collisionIndex;
+			}
+			
+			groups.get(index).addEntry(entry);
+		}
+		
+		return groups;
+	}
+	
+	private static long keyHigh(String hash) {
+		try {
+			return HashKeys.high(hash);
+		} catch (IllegalArgumentException e) {
+			return hash.hashCode();
 		}
 	}
 	
-	private static LinkedList<DuplicateGroup> convertMapToList(LinkedHashMap<String, DuplicateGroup> groupMap) {
-		LinkedList<DuplicateGroup> groupList = new LinkedList<>(groupMap.values());
-		return groupList;
+	private static long keyLow(String hash) {
+		try {
+			return HashKeys.low(hash);
+		} catch (IllegalArgumentException e) {
+			return hash.length();
+		}
 	}
 }
@@ -0,0 +1,140 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.duplicateViewer;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * List model for large numbers of groups. Groups are stored as their hash and
+ * entry paths, {@link DuplicateGroup} objects are only created when a row is
+ * requested, usually because it is visible. Created groups are kept, so
+ * selections are not lost. Must only be used on the event dispatch thread.
+ */
+public class GroupListModel extends AbstractListModel<DuplicateGroup> {
+	private static final long serialVersionUID = 1L;
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	private String[] hashes = new String[INITIAL_CAPACITY];
+	private Path[][] paths = new Path[INITIAL_CAPACITY][];
+	private DuplicateGroup[] groups = new DuplicateGroup[INITIAL_CAPACITY];
+	private int size = 0;
+	
+	@Override
+	public int getSize() {
+		return size;
+	}
+	
+	@Override
+	public DuplicateGroup getElementAt(int index) {
+		if(index < 0 || index >= size){
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		
+		if(groups[index] == null){
+			groups[index] = materialize(index);
+		}
+		
+		return groups[index];
+	}
+	
+	/**
+	 * Append the groups to the end of the list. Only the hashes and paths are kept.
+	 */
+	public void addAll(Collection<DuplicateGroup> toAdd) {
+		if(toAdd.isEmpty()){
+			return;
+		}
+		
+		int first = size;
+		ensureCapacity(size + toAdd.size());
+		
+		for(DuplicateGroup group : toAdd){
+			List<Entry> entries = group.getEntries();
+			Path[] entryPaths = new Path[entries.size()];
+			int i = 0;
+			
+			for(Entry entry : entries){
+				entryPaths[i++] = entry.getPath();
+			}
+			
+			hashes[size] = group.getImageHashValue();
+			paths[size] = entryPaths;
+			size++;
+		}
+		
+		fireIntervalAdded(this, first, size - 1);
+	}
+	
+	public void clear() {
+		if(size == 0){
+			return;
+		}
+		
+		int last = size - 1;
+		hashes = new String[INITIAL_CAPACITY];
+		paths = new Path[INITIAL_CAPACITY][];
+		groups = new DuplicateGroup[INITIAL_CAPACITY];
+		size = 0;
+		
+		fireIntervalRemoved(this, 0, last);
+	}
+	
+	/**
+	 * Groups that have been requested so far. Groups that were never requested
+	 * can not have selected entries.
+	 */
+	public List<DuplicateGroup> getMaterialized() {
+		List<DuplicateGroup> materialized = new LinkedList<>();
+		
+		for(int i = 0; i < size; i++){
+			if(groups[i] != null){
+				materialized.add(groups[i]);
+			}
+		}
+		
+		return materialized;
+	}
+	
+	private DuplicateGroup materialize(int index) {
+		DuplicateGroup group = new DuplicateGroup(hashes[index], index);
+		
+		for(Path path : paths[index]){
+			group.addEntry(new Entry(hashes[index], path));
+		}
+		
+		return group;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if(capacity <= hashes.length){
+			return;
+		}
+		
+		int newCapacity = Math.max(capacity, hashes.length * 2);
+		
+		hashes = Arrays.copyOf(hashes, newCapacity);
+		paths = Arrays.copyOf(paths, newCapacity);
+		groups = Arrays.copyOf(groups, newCapacity);
+	}
+}
@@ -18,14 +18,20 @@
 package com.github.dozedoff.aidUtil.module.duplicateViewer;
 
 import java.awt.Container;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -37,6 +43,7 @@ import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
+import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
@@ -45,24 +52,39 @@ import javax.swing.event.ListSelectionListener;
 
 import net.miginfocom.swing.MigLayout;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.aidUtil.app.Settings;
 import com.github.dozedoff.aidUtil.module.MaintenanceModule;
 import com.github.dozedoff.aidUtil.util.LocationTag;
 import com.github.dozedoff.commonj.image.SubsamplingImageLoader;
 
 public class ModuleDuplicateViewer extends MaintenanceModule{
+	private static final int LOAD_AHEAD_ROWS = 200;
+	private static final int PREFETCH_THREADS = 8;
+	
 	JPanel displayArea, duplicateViewOptions;
 	DefaultListModel<Entry> elm = new DefaultListModel<>();
-	DefaultListModel<DuplicateGroup> glm = new DefaultListModel<>();
+	GroupListModel glm = new GroupListModel();
 	
 	JList<DuplicateGroup> groupList;
 	JList<Entry> entryList;
 	JScrollPane entryScrollPane, groupScrollPane;
 	
 	HashMap<String, Path> tagMap = new HashMap<>();
-	boolean stop = false;
+	volatile boolean stop = false;
 	
 	DatabaseHandler dbHandler;
 	Deleter deleter;
+	volatile DuplicateLoader loader; // pages loaded by an older loader are discarded
+	
+	private Thread pageLoaderThread;
+	private final AtomicBoolean loading = new AtomicBoolean(false);
+	private final AtomicInteger residentGroups = new AtomicInteger();
+	private int maxGroups;
+	
+	private static Logger logger = LoggerFactory.getLogger(ModuleDuplicateViewer.class);
 	
 	ListSelectionListener groupSelectionListener = new ListSelectionListener() {
 		
@@ -70,7 +92,7 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 		public void valueChanged(ListSelectionEvent e) {
 			int index = groupList.getSelectedIndex();
 			if(isValidIndex(index)){
-				DuplicateGroup group = glm.get(index);
+				DuplicateGroup group = glm.getElementAt(index);
 				populateEntryList(group);
 				
 				Path imagepath = group.getImagepath();
@@ -115,6 +137,21 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 	private JButton btnDelete;
 	private JButton btnToggleGroup;
 	
+	AdjustmentListener groupScrollListener = new AdjustmentListener() {
+		
+		@Override
+		public void adjustmentValueChanged(AdjustmentEvent e) {
+			JScrollBar scrollBar = groupScrollPane.getVerticalScrollBar();
+			Rectangle firstRow = groupList.getCellBounds(0, 0);
+			int rowHeight = firstRow == null ? 1 : Math.max(1, firstRow.height);
+			int remaining = scrollBar.getMaximum() - (scrollBar.getValue() + scrollBar.getVisibleAmount());
+			
+			if(remaining / rowHeight < LOAD_AHEAD_ROWS){
+				requestNextPage();
+			}
+		}
+	};
+	
 	private boolean isValidIndex(int index) {
 		return (index >= 0);
 	}
@@ -148,6 +185,8 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 		displayArea = new JPanel();
 		
 		groupList = new JList<>(glm);
+		// with a fixed cell size the list does not need to create every group to lay itself out
+		groupList.setPrototypeCellValue(new DuplicateGroup("", Integer.MAX_VALUE));
 		entryList = new JList<>(elm);
 		entryScrollPane = new JScrollPane(entryList);
 		groupScrollPane = new JScrollPane(groupList);
@@ -186,7 +225,7 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 		btnDelete.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				try {
-					deleter.deleteAllSelected(glm);
+					deleter.deleteAllSelected(glm.getMaterialized());
 				} catch (IOException e1) {
 					error("Delete failed: " + e1.getMessage());
 				}
@@ -208,13 +247,14 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 	
 	private void addListeners() {
 		groupList.addListSelectionListener(groupSelectionListener);
+		groupScrollPane.getVerticalScrollBar().addAdjustmentListener(groupScrollListener);
 		entrySelect.addActionListener(selectListener);
 	}
 	
 	private void toggleGroup() {
 		int index = groupList.getSelectedIndex();
 		if(isValidIndex(index)){
-			DuplicateGroup group = glm.get(index);
+			DuplicateGroup group = glm.getElementAt(index);
 			
 			if(group.areAllSelected()){
 				group.selectAll(false);
@@ -227,10 +267,16 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 	@Override
 	public void start() {
 		stop = false;
-		glm.removeAllElements();
-		elm.removeAllElements();
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				glm.clear();
+				elm.removeAllElements();
+			}
+		});
 		
 		DuplicateGroup.resetRunningNumber();
+		FileMetadataCache.getInstance().clear();
 		
 		discoverTags();
 		dbHandler = new DatabaseHandler(getConnectionPool(), tagMap);
@@ -288,22 +334,134 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 		displayArea.add(new JLabel(message));
 	}
 
+	/**
+	 * Load the first page of duplicates, further pages are loaded as the user scrolls.
+	 */
 	private void loadDuplicates(){
-		addToStatusAndLog("Loading duplicates...");		
-		LinkedList<Entry> entries = dbHandler.getDuplicates();
+		addToStatusAndLog("Loading duplicates...");
+		
+		try {
+			stopPageLoader();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
 		
-		addToStatusAndLog("Creating groups...");
-		LinkedList<DuplicateGroup> groups = GroupListCreator.createList(entries);
+		DuplicateLoader pageLoader = new DuplicateLoader(dbHandler, Settings.getInstance().getDuplicatePageSize());
+		maxGroups = Settings.getInstance().getDuplicateMaxGroups();
+		residentGroups.set(0);
 		
-		filterGroups(groups);
+		synchronized(this){
+			loader = pageLoader;
+			loading.set(true);
+			pageLoaderThread = Thread.currentThread();
+		}
 		
-		addToStatusAndLog("Adding groups to GUI...");
-		SwingUtilities.invokeLater(new GroupListPopulator(groups));
+		loadNextPage(pageLoader);
+	}
+	
+	/**
+	 * Stop the page loader of the previous run and wait for it to finish.
+	 */
+	private void stopPageLoader() throws InterruptedException {
+		Thread previous;
 		
-		int duplicateNum = entries.size();
-		int groupNum = groups.size();
+		synchronized(this){
+			loader = null;
+			previous = pageLoaderThread;
+		}
 		
-		info(duplicateNum + " duplicates in " + groupNum + " groups.");
+		if(previous != null && previous != Thread.currentThread()){
+			previous.interrupt();
+			previous.join();
+		}
+	}
+	
+	/**
+	 * Load the next page in the background, unless a page is already being loaded.
+	 */
+	private synchronized void requestNextPage() {
+		final DuplicateLoader pageLoader = loader;
+		
+		if(pageLoader == null || stop || ! loading.compareAndSet(false, true)){
+			return;
+		}
+		
+		if(! pageLoader.hasMore()){
+			loading.set(false);
+			return;
+		}
+		
+		pageLoaderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				loadNextPage(pageLoader);
+			}
+		}, "Duplicate page loader");
+		pageLoaderThread.start();
+	}
+	
+	/**
+	 * Load pages until at least one group passes the filter and add the groups to the GUI.
+	 * The caller must have set the loading flag, it is cleared when done.
+	 * Nothing is added if a new run has been started in the meantime.
+	 */
+	private void loadNextPage(DuplicateLoader pageLoader) {
+		try {
+			List<DuplicateGroup> groups = new LinkedList<>();
+			
+			while(groups.isEmpty() && pageLoader.hasMore() && pageLoader == loader && ! stop){
+				if(residentGroups.get() >= maxGroups){
+					info("Showing the first " + residentGroups.get() + " groups, limit of " + maxGroups + " reached.");
+					return;
+				}
+				
+				groups = pageLoader.nextPage();
+				prefetchMetadata(groups);
+				groups = filterGroups(groups);
+			}
+			
+			if(pageLoader != loader){
+				return;
+			}
+			
+			residentGroups.addAndGet(groups.size());
+			SwingUtilities.invokeLater(new GroupListPopulator(pageLoader, groups));
+			
+			String more = pageLoader.hasMore() ? ", more are loaded when scrolling down." : ".";
+			info(pageLoader.getLoadedEntries() + " duplicates in " + pageLoader.getLoadedGroups() + " groups loaded" + more);
+		} catch (SQLException e) {
+			logger.warn("Failed to load duplicates", e);
+			error("Failed to load duplicates: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized(this){
+				if(pageLoaderThread == Thread.currentThread()){
+					pageLoaderThread = null;
+				}
+			}
+			
+			loading.set(false);
+		}
+	}
+	
+	/**
+	 * Read the metadata of all entries with parallel directory listings, so the
+	 * filters and the GUI do not have to check every file on its own.
+	 */
+	private void prefetchMetadata(List<DuplicateGroup> groups) throws InterruptedException {
+		List<Path> paths = new LinkedList<>();
+		
+		for(DuplicateGroup group : groups){
+			for(Entry entry : group.getEntries()){
+				if(entry.getPath().isAbsolute()){
+					paths.add(entry.getPath());
+				}
+			}
+		}
+		
+		FileMetadataCache.getInstance().prefetch(paths, PREFETCH_THREADS);
 	}
 	
 	private void addToStatusAndLog(String message){
@@ -311,30 +469,34 @@ public class ModuleDuplicateViewer extends MaintenanceModule{
 		info(message);	
 	}
 	
-	private void filterGroups(List<DuplicateGroup> groups) {
+	private List<DuplicateGroup> filterGroups(List<DuplicateGroup> groups) throws InterruptedException {
 		final String FILTER_MSG = "Filtering groups...";
 		if(groupFilterAll.isSelected()){
-			return;
+			return groups;
 		}else if(groupFilterValid.isSelected()){
-			addToStatusAndLog(FILTER_MSG);
-			GroupFilter.onlyFullyValidGroups(groups);
+			setStatus(FILTER_MSG);
+			return GroupFilter.fullyValidGroups(groups, GroupFilter.DEFAULT_THREADS, GroupFilter.DEFAULT_CHECKS_PER_ROOT);
 		}else if(groupFilterVisible.isSelected()){
-			addToStatusAndLog(FILTER_MSG);
+			setStatus(FILTER_MSG);
 			GroupFilter.onlyVisibleTagGroups(groups);
 		}
+		
+		return groups;
 	}
 	
 	class GroupListPopulator implements Runnable {
+		DuplicateLoader pageLoader;
 		List<DuplicateGroup> groups;
 		
-		public GroupListPopulator(List<DuplicateGroup> groups) {
+		public GroupListPopulator(DuplicateLoader pageLoader, List<DuplicateGroup> groups) {
+			this.pageLoader = pageLoader;
 			this.groups = groups;
 		}
 
 		@Override
 		public void run() {
-			for (DuplicateGroup group : groups) {
-				glm.addElement(group);
+			if(pageLoader == loader){
+				glm.addAll(groups);
 			}
 		}
 	}
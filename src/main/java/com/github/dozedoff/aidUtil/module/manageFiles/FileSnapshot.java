@@ -0,0 +1,358 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.manageFiles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.dozedoff.aidUtil.util.HashKeys;
+import com.github.dozedoff.aidUtil.util.StreamingHasher;
+
+/**
+ * Size, modification time and hash of the files seen in a run, keyed by the
+ * fingerprint of the path relative to the drive root (see {@link PathIndex#fingerprint(CharSequence, int, boolean)}).
+ * Used to skip hashing files that did not change since the last run.<br/>
+ * Every entry remembers the scope, the directory relative to the drive root that was
+ * scanned when the entry was recorded. Entries whose scope was scanned again, but were
+ * not seen, belong to deleted or moved files and are dropped.<br/>
+ * Entries are kept in flat arrays using open addressing. {@link #put(long, long, long, String)}
+ * is thread safe, lookups are only safe once the snapshot is no longer modified.
+ */
+public class FileSnapshot {
+	public static final int HASH_BYTES = 32;
+	
+	private static final int MAGIC = 0x41494453; // AIDS
+	private static final int VERSION = 2;
+	private static final int VERSION_WITHOUT_SCOPE = 1;
+	private static final int MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.6f;
+	private static final long EMPTY = 0;
+	
+	private long[] keys;
+	private long[] sizes;
+	private long[] modified;
+	private int[] scopeIds;
+	private byte[] hashes;
+	private final List<String> scopes = new ArrayList<>();
+	private int mask;
+	private int size = 0;
+	
+	public FileSnapshot() {
+		this(MIN_CAPACITY);
+	}
+	
+	public FileSnapshot(int expectedSize) {
+		this(expectedSize, "");
+	}
+	
+	/**
+	 * @param scope the directory scanned in this run, relative to the drive root with a trailing separator.
+	 *        An empty scope is the whole drive.
+	 */
+	public FileSnapshot(int expectedSize, String scope) {
+		scopes.add(scope);
+		int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+		allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(needed - 1) << 1));
+	}
+	
+	/**
+	 * Record a file. An existing entry for the same path is replaced.
+	 * 
+	 * @param hash SHA-256 hash as hex string, other hashes are ignored
+	 */
+	public synchronized void put(long fingerprint, long size, long modified, String hash) {
+		if(hash == null || hash.length() != HASH_BYTES * 2){
+			return;
+		}
+		
+		byte[] hashBytes = new byte[HASH_BYTES];
+		
+		for(int i = 0; i < HASH_BYTES; i++){
+			hashBytes[i] = (byte) Integer.parseInt(hash.substring(i * 2, i * 2 + 2), 16);
+		}
+		
+		put(fingerprint, size, modified, hashBytes, 0, 0);
+	}
+	
+	/**
+	 * Get the hash of a file, if it has not changed since it was recorded.
+	 * 
+	 * @return the hash, or null if the file is unknown or has changed
+	 */
+	public String getHash(long fingerprint, long size, long modified) {
+		int slot = find(key(fingerprint));
+		
+		if(keys[slot] == EMPTY || sizes[slot] != size || this.modified[slot] != modified){
+			return null;
+		}
+		
+		return StreamingHasher.toHex(Arrays.copyOfRange(hashes, slot * HASH_BYTES, (slot + 1) * HASH_BYTES));
+	}
+	
+	/**
+	 * Copy the entry of an older snapshot for a file that was seen but not recorded in this run.
+	 * 
+	 * @return true if the older snapshot has an entry for the file
+	 */
+	public synchronized boolean keep(FileSnapshot older, long fingerprint) {
+		synchronized (older) {
+			int slot = older.find(key(fingerprint));
+			
+			if(older.keys[slot] == EMPTY){
+				return false;
+			}
+			
+			copy(older, slot);
+			return true;
+		}
+	}
+	
+	/**
+	 * Copy the entries of an older snapshot for paths that are not in this snapshot,
+	 * regardless of scope. Use this if the run did not finish.
+	 * 
+	 * @return number of entries copied
+	 */
+	public synchronized int addMissing(FileSnapshot older) {
+		return addMissing(older, false);
+	}
+	
+	/**
+	 * Copy the entries of an older snapshot for paths that are not in this snapshot
+	 * and lie outside of its scope, so files that were not scanned in this run are
+	 * still known in the next one.
+	 * 
+	 * @return number of entries copied
+	 */
+	public synchronized int addUncovered(FileSnapshot older) {
+		return addMissing(older, true);
+	}
+	
+	private int addMissing(FileSnapshot older, boolean skipCovered) {
+		int added = 0;
+		String scope = scopes.get(0);
+		
+		synchronized (older) {
+			for(int slot = 0; slot < older.keys.length; slot++){
+				long key = older.keys[slot];
+				
+				if(key == EMPTY || keys[find(key)] != EMPTY){
+					continue;
+				}
+				
+				if(skipCovered && older.scopes.get(older.scopeIds[slot]).startsWith(scope)){
+					// scanned in this run and not seen, the file is gone
+					continue;
+				}
+				
+				copy(older, slot);
+				added++;
+			}
+		}
+		
+		return added;
+	}
+	
+	/**
+	 * Copy an entry of another snapshot, keeping its scope.
+	 */
+	private void copy(FileSnapshot older, int slot) {
+		String scope = older.scopes.get(older.scopeIds[slot]);
+		int scopeId = scopes.indexOf(scope);
+		
+		if(scopeId < 0){
+			scopeId = scopes.size();
+			scopes.add(scope);
+		}
+		
+		put(older.keys[slot], older.sizes[slot], older.modified[slot], older.hashes, slot * HASH_BYTES, scopeId);
+	}
+	
+	public synchronized int size() {
+		return size;
+	}
+	
+	/**
+	 * Load a snapshot from a file. If the file does not exist, an empty snapshot is returned.
+	 */
+	public static FileSnapshot load(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if(in.readInt() != MAGIC){
+				throw new IOException(file + " is not a valid snapshot");
+			}
+			
+			int version = in.readInt();
+			
+			if(version != VERSION && version != VERSION_WITHOUT_SCOPE){
+				throw new IOException(file + " is not a valid snapshot");
+			}
+			
+			// the first scope is the one of the saved run, older snapshots always scanned the whole drive
+			List<String> scopes = new ArrayList<>();
+			
+			if(version == VERSION){
+				int scopeCount = in.readInt();
+				
+				for(int i = 0; i < scopeCount; i++){
+					scopes.add(in.readUTF());
+				}
+			}else{
+				scopes.add("");
+			}
+			
+			int count = in.readInt();
+			FileSnapshot snapshot = new FileSnapshot(count, scopes.get(0));
+			snapshot.scopes.addAll(scopes.subList(1, scopes.size()));
+			byte[] hash = new byte[HASH_BYTES];
+			
+			for(int i = 0; i < count; i++){
+				long fingerprint = in.readLong();
+				long size = in.readLong();
+				long modified = in.readLong();
+				int scopeId = version == VERSION ? in.readInt() : 0;
+				in.readFully(hash);
+				
+				if(scopeId < 0 || scopeId >= scopes.size()){
+					throw new IOException(file + " is not a valid snapshot");
+				}
+				
+				snapshot.put(fingerprint, size, modified, hash, 0, scopeId);
+			}
+			
+			return snapshot;
+		} catch (NoSuchFileException e) {
+			return new FileSnapshot();
+		}
+	}
+	
+	/**
+	 * Write the snapshot to a file. The file is replaced once the snapshot has been written.
+	 */
+	public synchronized void save(Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, "snapshot", ".tmp");
+		
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(scopes.size());
+				
+				for(String scope : scopes){
+					out.writeUTF(scope);
+				}
+				
+				out.writeInt(size);
+				
+				for(int slot = 0; slot < keys.length; slot++){
+					if(keys[slot] != EMPTY){
+						out.writeLong(keys[slot]);
+						out.writeLong(sizes[slot]);
+						out.writeLong(modified[slot]);
+						out.writeInt(scopeIds[slot]);
+						out.write(hashes, slot * HASH_BYTES, HASH_BYTES);
+					}
+				}
+			}
+			
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	private void put(long fingerprint, long size, long modified, byte[] hash, int offset, int scopeId) {
+		long key = key(fingerprint);
+		int slot = find(key);
+		
+		if(keys[slot] == EMPTY){
+			if(this.size + 1 > keys.length * LOAD_FACTOR){
+				rehash(keys.length * 2);
+				slot = find(key);
+			}
+			
+			this.size++;
+		}
+		
+		store(slot, key, size, modified, hash, offset, scopeId);
+	}
+	
+	private void store(int slot, long key, long size, long modified, byte[] hash, int offset, int scopeId) {
+		keys[slot] = key;
+		sizes[slot] = size;
+		this.modified[slot] = modified;
+		scopeIds[slot] = scopeId;
+		System.arraycopy(hash, offset, hashes, slot * HASH_BYTES, HASH_BYTES);
+	}
+	
+	/**
+	 * Find the slot holding the key, or the empty slot where it would go.
+	 */
+	private int find(long key) {
+		int slot = (int) HashKeys.mix(key, 0) & mask;
+		
+		while(keys[slot] != EMPTY && keys[slot] != key){
+			slot = (slot + 1) & mask;
+		}
+		
+		return slot;
+	}
+	
+	/**
+	 * The fingerprint 0 marks empty slots, move it out of the way.
+	 */
+	private long key(long fingerprint) {
+		return fingerprint == EMPTY ? 1 : fingerprint;
+	}
+	
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		long[] oldSizes = sizes;
+		long[] oldModified = modified;
+		int[] oldScopeIds = scopeIds;
+		byte[] oldHashes = hashes;
+		
+		allocate(capacity);
+		
+		for(int slot = 0; slot < oldKeys.length; slot++){
+			if(oldKeys[slot] != EMPTY){
+				store(find(oldKeys[slot]), oldKeys[slot], oldSizes[slot], oldModified[slot], oldHashes, slot * HASH_BYTES, oldScopeIds[slot]);
+			}
+		}
+	}
+	
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		sizes = new long[capacity];
+		modified = new long[capacity];
+		scopeIds = new int[capacity];
+		hashes = new byte[capacity * HASH_BYTES];
+		mask = capacity - 1;
+	}
+}
@@ -0,0 +1,196 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.manageFiles;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+/**
+ * Looks up which list a batch of hashes belongs to with a single query,
+ * instead of checking every list for every hash.
+ */
+public class HashClassifier {
+	public enum HashStatus {
+		BLACKLISTED("block"), DNW("dnw"), INDEXED("fileindex"), UNKNOWN(null);
+		
+		private final String table;
+		
+		private HashStatus(String table) {
+			this.table = table;
+		}
+	}
+	
+	private final ConnectionPool connPool;
+	private final EnumSet<HashStatus> checked;
+	private final EnumSet<HashStatus> queried;
+	private final HashStatusCache cache;
+	
+	private Logger logger = LoggerFactory.getLogger(HashClassifier.class);
+	
+	/**
+	 * @param checked the lists to look in, hashes in other lists will be UNKNOWN
+	 */
+	public HashClassifier(ConnectionPool connPool, EnumSet<HashStatus> checked) {
+		this(connPool, checked, null);
+	}
+	
+	/**
+	 * @param checked the lists to look in, hashes in other lists will be UNKNOWN
+	 * @param cache used instead of the database where possible, may be null
+	 */
+	public HashClassifier(ConnectionPool connPool, EnumSet<HashStatus> checked, HashStatusCache cache) {
+		this.connPool = connPool;
+		this.cache = cache;
+		this.checked = EnumSet.copyOf(checked);
+		this.checked.remove(HashStatus.UNKNOWN);
+		this.queried = EnumSet.copyOf(this.checked);
+		
+		if(cache != null){
+			for(HashStatus status : this.checked){
+				if(cache.isCached(status)){
+					queried.remove(status);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Classify the hashes. If a hash is in more than one list, the status that comes
+	 * first in {@link HashStatus} wins.
+	 * 
+	 * @return the status for every hash, hashes that were not found are UNKNOWN
+	 */
+	public Map<String, HashStatus> classify(Collection<String> hashes) throws SQLException {
+		Map<String, HashStatus> status = new HashMap<>();
+		
+		for(String hash : hashes){
+			status.put(hash, HashStatus.UNKNOWN);
+		}
+		
+		if(checked.isEmpty() || status.isEmpty()){
+			return status;
+		}
+		
+		Set<String> lookup = status.keySet();
+		
+		if(cache != null){
+			lookup = classifyCached(status);
+		}
+		
+		if(lookup.isEmpty() || queried.isEmpty()){
+			return status;
+		}
+		
+		String[] distinct = lookup.toArray(new String[lookup.size()]);
+		
+		try (Connection con = connPool.getConnection();
+				PreparedStatement classify = con.prepareStatement(buildQuery(queried, distinct.length))) {
+			int index = 1;
+			
+			for(int i = 0; i < queried.size(); i++){
+				for(String hash : distinct){
+					classify.setString(index++, hash);
+				}
+			}
+			
+			try (ResultSet rs = classify.executeQuery()) {
+				while(rs.next()){
+					HashStatus found = HashStatus.values()[rs.getInt(1)];
+					String hash = rs.getString(2);
+					HashStatus current = status.get(hash);
+					
+					if(current != null && found.compareTo(current) < 0){
+						status.put(hash, found);
+					}
+				}
+			}
+		}
+		
+		logger.debug("Looked up {} of {} hashes", distinct.length, status.size());
+		return status;
+	}
+	
+	/**
+	 * Set the status of hashes found in the cache.
+	 * 
+	 * @return hashes that still need to be looked up in the database
+	 */
+	private Set<String> classifyCached(Map<String, HashStatus> status) {
+		Set<String> lookup = new HashSet<>();
+		
+		for(Map.Entry<String, HashStatus> entry : status.entrySet()){
+			String hash = entry.getKey();
+			
+			for(HashStatus list : checked){
+				if(! cache.isCached(list)){
+					if(list != HashStatus.INDEXED || cache.mightBeIndexed(hash)){
+						lookup.add(hash);
+						break;
+					}
+				}else if(cache.contains(list, hash)){
+					entry.setValue(list);
+					break;
+				}
+			}
+		}
+		
+		return lookup;
+	}
+	
+	/**
+	 * Build a query returning the status ordinal and the hash for every hash found
+	 * in one of the checked tables.
+	 */
+	public static String buildQuery(EnumSet<HashStatus> checked, int hashCount) {
+		StringBuilder placeholders = new StringBuilder();
+		
+		for(int i = 0; i < hashCount; i++){
+			if(i > 0){
+				placeholders.append(",");
+			}
+			
+			placeholders.append("?");
+		}
+		
+		StringBuilder sb = new StringBuilder();
+		
+		for(HashStatus status : checked){
+			if(sb.length() > 0){
+				sb.append(" UNION ALL ");
+			}
+			
+			sb.append("SELECT ").append(status.ordinal()).append(", `id` FROM `").append(status.table)
+				.append("` WHERE `id` IN (").append(placeholders).append(")");
+		}
+		
+		return sb.toString();
+	}
+}
@@ -0,0 +1,157 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.manageFiles;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.aidUtil.module.manageFiles.HashClassifier.HashStatus;
+import com.github.dozedoff.aidUtil.util.BloomFilter;
+import com.github.dozedoff.aidUtil.util.HashKeySet;
+import com.github.dozedoff.aidUtil.util.HashKeys;
+
+/**
+ * In memory copy of the blacklist and DNW hashes, loaded once per run.
+ * Optionally keeps a Bloom filter of the index, so hashes that are
+ * certainly not indexed do not need to be looked up. Hashes indexed during
+ * the run must be added with {@link #markIndexed(String)}.
+ */
+public class HashStatusCache {
+	private static final double INDEX_FILTER_FALSE_POSITIVES = 0.01;
+	
+	private final HashKeySet blacklist = new HashKeySet();
+	private final HashKeySet dnw = new HashKeySet();
+	private BloomFilter indexFilter = null;
+	
+	private static Logger logger = LoggerFactory.getLogger(HashStatusCache.class);
+	
+	/**
+	 * Load the cache from the database.
+	 * 
+	 * @param filterIndex if true, a Bloom filter of the index will be built
+	 */
+	public static HashStatusCache load(Connection con, boolean filterIndex) throws SQLException {
+		HashStatusCache cache = new HashStatusCache();
+		
+		loadHashes(con, "SELECT `id` FROM `block`", cache.blacklist);
+		loadHashes(con, "SELECT `id` FROM `dnw`", cache.dnw);
+		
+		if(filterIndex){
+			cache.indexFilter = loadFilter(con);
+		}
+		
+		return cache;
+	}
+	
+	/**
+	 * Tables with an authoritative copy in the cache.
+	 */
+	public boolean isCached(HashStatus status) {
+		return status == HashStatus.BLACKLISTED || status == HashStatus.DNW;
+	}
+	
+	/**
+	 * Check if the hash is in a cached table.
+	 */
+	public boolean contains(HashStatus status, String hash) {
+		switch (status) {
+		case BLACKLISTED:
+			return blacklist.contains(hash);
+		case DNW:
+			return dnw.contains(hash);
+		default:
+			throw new IllegalArgumentException(status + " is not cached");
+		}
+	}
+	
+	/**
+	 * @return false if the hash is certainly not indexed
+	 */
+	public boolean mightBeIndexed(String hash) {
+		return indexFilter == null || indexFilter.mightContain(hash);
+	}
+	
+	/**
+	 * Record a hash that was added to the index after the cache was loaded.
+	 * Safe to call from multiple threads.
+	 */
+	public void markIndexed(String hash) {
+		if(indexFilter == null){
+			return;
+		}
+		
+		try {
+			indexFilter.put(hash);
+		} catch (IllegalArgumentException e) {
+			logger.warn("Ignoring invalid hash {}", hash);
+		}
+	}
+	
+	public int getBlacklistSize() {
+		return blacklist.size();
+	}
+	
+	public int getDnwSize() {
+		return dnw.size();
+	}
+	
+	private static void loadHashes(Connection con, String query, HashKeySet hashes) throws SQLException {
+		try (PreparedStatement stmt = IndexedPaths.streamingStatement(con, query); ResultSet rs = stmt.executeQuery()) {
+			while(rs.next()){
+				String hash = rs.getString(1);
+				
+				try {
+					hashes.add(hash);
+				} catch (IllegalArgumentException e) {
+					logger.warn("Ignoring invalid hash {}", hash);
+				}
+			}
+		}
+	}
+	
+	private static BloomFilter loadFilter(Connection con) throws SQLException {
+		long indexSize = 0;
+		
+		try (PreparedStatement count = con.prepareStatement("SELECT COUNT(*) FROM `fileindex`"); ResultSet rs = count.executeQuery()) {
+			if(rs.next()){
+				indexSize = rs.getLong(1);
+			}
+		}
+		
+		BloomFilter filter = new BloomFilter(indexSize, INDEX_FILTER_FALSE_POSITIVES);
+		
+		try (PreparedStatement stmt = IndexedPaths.streamingStatement(con, "SELECT `id` FROM `fileindex`"); ResultSet rs = stmt.executeQuery()) {
+			while(rs.next()){
+				String hash = rs.getString(1);
+				
+				try {
+					filter.put(HashKeys.high(hash), HashKeys.low(hash));
+				} catch (IllegalArgumentException e) {
+					logger.warn("Ignoring invalid hash {}", hash);
+				}
+			}
+		}
+		
+		return filter;
+	}
+}
@@ -0,0 +1,449 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.manageFiles;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+/**
+ * Removes index and duplicate entries for files that no longer exist.
+ * Every indexed directory is listed once and compared with the indexed names.
+ * Directories are checked in parallel while the index is still being loaded.
+ * Deletes are collected and executed in batches, each batch in one transaction.
+ * If a whole top-level directory is gone, its entries are kept unless pruning
+ * missing trees is enabled, so an unmounted share does not empty the index.
+ */
+public class IndexPruner {
+	private static final int DELETE_BATCH_SIZE = 500;
+	private static final String[] PRUNED_TABLES = {"fileindex", "fileduplicate"};
+	private static final int QUEUED_DIRECTORIES_PER_THREAD = 4;
+	private static final IndexedDirectory END_OF_DIRECTORIES = new IndexedDirectory(null, null);
+	
+	private final ConnectionPool connPool;
+	private final String location;
+	private final Path root;
+	private final int threads;
+	private final boolean ignoreCase;
+	
+	private final AtomicLong total = new AtomicLong(), checked = new AtomicLong(), pruned = new AtomicLong(), failed = new AtomicLong(), kept = new AtomicLong();
+	private final AtomicInteger activeCheckers = new AtomicInteger();
+	private final Set<Path> missingTrees = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+	private final Map<String, List<String>> pendingDeletes = new HashMap<>();
+	private int pendingCount = 0;
+	private volatile boolean stop = false;
+	private volatile boolean pruneMissingTrees = false;
+	
+	private static Logger logger = LoggerFactory.getLogger(IndexPruner.class);
+	
+	/**
+	 * @param location the location tag of the files to check
+	 * @param root the drive the location is on
+	 * @param threads number of directories checked in parallel
+	 */
+	public IndexPruner(ConnectionPool connPool, String location, Path root, int threads) {
+		this.connPool = connPool;
+		this.location = location;
+		this.root = root;
+		this.threads = threads;
+		this.ignoreCase = PathIndex.PLATFORM_IGNORES_CASE;
+	}
+	
+	/**
+	 * Check all indexed files for the location and delete the missing ones.
+	 * 
+	 * @return number of files that were pruned
+	 * @throws IOException if the root is not a readable directory
+	 */
+	public long prune() throws SQLException, InterruptedException, IOException {
+		if(! Files.isDirectory(root) || ! Files.isReadable(root)){
+			throw new IOException(root + " is not a readable directory");
+		}
+		
+		// when the checkers fall behind, the loading thread blocks until there is room in the queue
+		final LinkedBlockingQueue<IndexedDirectory> directories = new LinkedBlockingQueue<>(threads * QUEUED_DIRECTORIES_PER_THREAD);
+		ExecutorService checkers = Executors.newFixedThreadPool(threads);
+		
+		for(int i = 0; i < threads; i++){
+			activeCheckers.incrementAndGet();
+			checkers.execute(new DirectoryChecker(directories));
+		}
+		
+		try {
+			try (Connection con = connPool.getConnection()) {
+				IndexedPaths.forEachDirectory(con, location, new IndexedPaths.DirectoryHandler() {
+					@Override
+					public void handle(String directory, List<String> names) {
+						total.addAndGet(names.size());
+						
+						if(stop || Thread.currentThread().isInterrupted()){
+							return;
+						}
+						
+						try {
+							enqueue(directories, new IndexedDirectory(directory, names));
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+			
+			if(Thread.interrupted()){
+				throw new InterruptedException();
+			}
+			
+			for(int i = 0; i < threads; i++){
+				enqueue(directories, END_OF_DIRECTORIES);
+			}
+			
+			checkers.shutdown();
+			
+			while(! checkers.awaitTermination(1, TimeUnit.SECONDS)){
+				if(stop){
+					checkers.shutdownNow();
+				}
+			}
+		} finally {
+			checkers.shutdownNow();
+		}
+		
+		flushDeletes();
+		return pruned.get();
+	}
+	
+	/**
+	 * Wait for room in the queue, unless the checkers are gone.
+	 * 
+	 * @return false if the directory was dropped because nothing would check it
+	 */
+	private boolean enqueue(LinkedBlockingQueue<IndexedDirectory> directories, IndexedDirectory directory) throws InterruptedException {
+		while(! directories.offer(directory, 1, TimeUnit.SECONDS)){
+			if(stop || activeCheckers.get() == 0){
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	public void cancel() {
+		stop = true;
+	}
+	
+	/**
+	 * If set, entries under a top-level directory that no longer exists are pruned as well.
+	 * Otherwise they are kept and reported by {@link #getMissingTrees()}.
+	 */
+	public void setPruneMissingTrees(boolean pruneMissingTrees) {
+		this.pruneMissingTrees = pruneMissingTrees;
+	}
+	
+	/**
+	 * Number of indexed files loaded so far.
+	 */
+	public long getTotal() {
+		return total.get();
+	}
+	
+	/**
+	 * Number of indexed files that have been checked.
+	 */
+	public long getChecked() {
+		return checked.get();
+	}
+	
+	public long getPruned() {
+		return pruned.get();
+	}
+	
+	/**
+	 * Number of missing files that could not be deleted from the index.
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+	
+	/**
+	 * Number of missing files that were kept because their whole top-level directory is gone.
+	 */
+	public long getKept() {
+		return kept.get();
+	}
+	
+	/**
+	 * Top-level directories that no longer exist, but still have indexed files.
+	 */
+	public Set<Path> getMissingTrees() {
+		return missingTrees;
+	}
+	
+	/**
+	 * Find the names that are not in the directory. If the directory does not exist, all names are missing.
+	 * 
+	 * @param ignoreCase if true, names that only differ in case are considered equal
+	 * @throws IOException if the directory could not be listed
+	 */
+	public static List<String> findMissing(Path directory, Collection<String> names, boolean ignoreCase) throws IOException {
+		Set<String> existing = new HashSet<>();
+		
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for(Path entry : stream){
+				existing.add(normalize(entry.getFileName().toString(), ignoreCase));
+			}
+		} catch (NoSuchFileException | NotDirectoryException e) {
+			// everything in it is gone
+		} catch (DirectoryIteratorException e) {
+			throw e.getCause();
+		}
+		
+		List<String> missing = new LinkedList<>();
+		
+		for(String name : names){
+			if(! existing.contains(normalize(name, ignoreCase))){
+				missing.add(name);
+			}
+		}
+		
+		return missing;
+	}
+	
+	private static String normalize(String name, boolean ignoreCase) {
+		return ignoreCase ? name.toLowerCase(Locale.ROOT) : name;
+	}
+	
+	private void checkDirectory(String directory, List<String> names) {
+		if(stop){
+			return;
+		}
+		
+		try {
+			List<String> missing = findMissing(root.resolve(directory), names, ignoreCase);
+			
+			if(! missing.isEmpty()){
+				if(! pruneMissingTrees && isTreeMissing(directory)){
+					kept.addAndGet(missing.size());
+				}else{
+					queueDelete(directory, missing);
+				}
+			}
+		} catch (IOException e) {
+			// don't delete anything we can't be sure about
+			logger.warn("Failed to list {}, skipping", directory, e);
+		}
+		
+		checked.addAndGet(names.size());
+	}
+	
+	/**
+	 * Check if the top-level directory containing the directory is gone.
+	 */
+	private boolean isTreeMissing(String directory) {
+		Path relative = root.relativize(root.resolve(directory));
+		
+		if(relative.toString().isEmpty()){
+			return false;
+		}
+		
+		Path tree = root.resolve(relative.getName(0));
+		
+		if(Files.exists(tree)){
+			return false;
+		}
+		
+		if(missingTrees.add(tree)){
+			logger.warn("{} is missing, keeping its index entries", tree);
+		}
+		
+		return true;
+	}
+	
+	private void queueDelete(String directory, List<String> names) {
+		synchronized (pendingDeletes) {
+			List<String> pending = pendingDeletes.get(directory);
+			
+			if(pending == null){
+				pendingDeletes.put(directory, names);
+			}else{
+				pending.addAll(names);
+			}
+			
+			pendingCount += names.size();
+			
+			if(pendingCount >= DELETE_BATCH_SIZE){
+				flushDeletes();
+			}
+		}
+	}
+	
+	/**
+	 * Delete all queued entries in one transaction.
+	 */
+	private void flushDeletes() {
+		synchronized (pendingDeletes) {
+			if(pendingDeletes.isEmpty()){
+				return;
+			}
+			
+			Connection con = null;
+			
+			try {
+				con = connPool.getConnection();
+				con.setAutoCommit(false);
+				
+				for(Entry<String, List<String>> directory : pendingDeletes.entrySet()){
+					for(String table : PRUNED_TABLES){
+						delete(con, table, directory.getKey(), directory.getValue());
+					}
+				}
+				
+				con.commit();
+				pruned.addAndGet(pendingCount);
+			} catch (SQLException e) {
+				logger.warn("Failed to delete batch of {} entries", pendingCount, e);
+				rollback(con);
+				failed.addAndGet(pendingCount);
+			} finally {
+				close(con);
+				pendingDeletes.clear();
+				pendingCount = 0;
+			}
+		}
+	}
+	
+	private void delete(Connection con, String table, String directory, List<String> names) throws SQLException {
+		StringBuilder sql = new StringBuilder("DELETE t FROM `").append(table).append("` AS t ")
+				.append("JOIN `dirlist` AS d ON t.`dir` = d.`id` ")
+				.append("JOIN `filelist` AS f ON t.`filename` = f.`id` ")
+				.append("JOIN `location_tags` AS l ON t.`location` = l.`tag_id` ")
+				.append("WHERE l.`location` = ? AND d.`dirpath` = ? AND f.`filename` IN (");
+		
+		for(int i = 0; i < names.size(); i++){
+			sql.append(i == 0 ? "?" : ",?");
+		}
+		
+		sql.append(")");
+		
+		try (PreparedStatement delete = con.prepareStatement(sql.toString())) {
+			int index = 1;
+			delete.setString(index++, location);
+			delete.setString(index++, directory);
+			
+			for(String name : names){
+				delete.setString(index++, name);
+			}
+			
+			delete.executeUpdate();
+		}
+	}
+	
+	private void rollback(Connection con) {
+		if(con == null){
+			return;
+		}
+		
+		try {
+			con.rollback();
+		} catch (SQLException e) {
+			logger.warn("Failed to rollback transaction", e);
+		}
+	}
+	
+	private void close(Connection con) {
+		if(con == null){
+			return;
+		}
+		
+		try {
+			con.setAutoCommit(true);
+			con.close();
+		} catch (SQLException e) {
+			logger.warn("Failed to close database connection", e);
+		}
+	}
+	
+	/**
+	 * Checks queued directories until it takes the end marker.
+	 */
+	private class DirectoryChecker implements Runnable {
+		private final LinkedBlockingQueue<IndexedDirectory> directories;
+		
+		public DirectoryChecker(LinkedBlockingQueue<IndexedDirectory> directories) {
+			this.directories = directories;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				IndexedDirectory next;
+				
+				while((next = directories.take()) != END_OF_DIRECTORIES){
+					try {
+						checkDirectory(next.directory, next.names);
+					} catch (RuntimeException e) {
+						// keep draining the queue, otherwise the loader blocks
+						logger.warn("Failed to check {}, skipping", next.directory, e);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				activeCheckers.decrementAndGet();
+			}
+		}
+	}
+	
+	private static class IndexedDirectory {
+		final String directory;
+		final List<String> names;
+		
+		public IndexedDirectory(String directory, List<String> names) {
+			this.directory = directory;
+			this.names = names;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.manageFiles;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the indexed paths of a location row by row, without buffering the result
+ * in the driver. While a result is streamed, the connection can not be used for
+ * anything else.
+ */
+public class IndexedPaths {
+	private static final String SELECT_PATHS = "SELECT `fullpath` FROM `indexview` WHERE location = ?";
+	private static final String SELECT_BY_DIRECTORY = "SELECT d.`dirpath`, f.`filename` FROM `fileindex` AS fi "
+			+ "JOIN `dirlist` AS d ON fi.`dir` = d.`id` "
+			+ "JOIN `filelist` AS f ON fi.`filename` = f.`id` "
+			+ "JOIN `location_tags` AS l ON fi.`location` = l.`tag_id` "
+			+ "WHERE l.`location` = ? ORDER BY fi.`dir`";
+	
+	public interface PathHandler {
+		/**
+		 * @param fullPath path relative to the drive root
+		 */
+		void handle(String fullPath);
+	}
+	
+	public interface DirectoryHandler {
+		/**
+		 * Called once for every directory.
+		 * 
+		 * @param directory directory relative to the drive root, with trailing separator
+		 * @param names the indexed file names in the directory
+		 */
+		void handle(String directory, List<String> names);
+	}
+	
+	private IndexedPaths() {
+	}
+	
+	/**
+	 * Pass every indexed path of the location to the handler, in no particular order.
+	 * 
+	 * @return number of paths read
+	 */
+	public static long forEachPath(Connection con, String location, PathHandler handler) throws SQLException {
+		long count = 0;
+		
+		try (PreparedStatement stmt = streamingStatement(con, SELECT_PATHS)) {
+			stmt.setString(1, location);
+			
+			try (ResultSet rs = stmt.executeQuery()) {
+				while(rs.next()){
+					handler.handle(rs.getString(1));
+					count++;
+				}
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Pass the indexed files of the location to the handler, one directory at a time.
+	 * The database sorts the rows, so only one directory is held in memory.
+	 * 
+	 * @return number of files read
+	 */
+	public static long forEachDirectory(Connection con, String location, DirectoryHandler handler) throws SQLException {
+		long count = 0;
+		String directory = null;
+		List<String> names = new ArrayList<>();
+		
+		try (PreparedStatement stmt = streamingStatement(con, SELECT_BY_DIRECTORY)) {
+			stmt.setString(1, location);
+			
+			try (ResultSet rs = stmt.executeQuery()) {
+				while(rs.next()){
+					String rowDirectory = rs.getString(1);
+					
+					if(directory != null && ! directory.equals(rowDirectory)){
+						handler.handle(directory, names);
+						names = new ArrayList<>();
+					}
+					
+					directory = rowDirectory;
+					names.add(rs.getString(2));
+					count++;
+				}
+			}
+		}
+		
+		if(directory != null){
+			handler.handle(directory, names);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Statement that makes the MySQL driver stream rows instead of buffering the whole result.
+	 */
+	static PreparedStatement streamingStatement(Connection con, String query) throws SQLException {
+		PreparedStatement stmt = con.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		stmt.setFetchSize(Integer.MIN_VALUE);
+		return stmt;
+	}
+}
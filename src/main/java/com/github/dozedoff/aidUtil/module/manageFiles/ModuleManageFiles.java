@@ -26,20 +26,39 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
@@ -53,10 +72,17 @@ import net.miginfocom.swing.MigLayout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.dozedoff.aidUtil.app.Settings;
 import com.github.dozedoff.aidUtil.module.MaintenanceModule;
-import com.github.dozedoff.commonj.file.BinaryFileReader;
+import com.github.dozedoff.aidUtil.module.manageFiles.HashClassifier.HashStatus;
+import com.github.dozedoff.aidUtil.util.BufferPool;
+import com.github.dozedoff.aidUtil.util.ByteBudget;
+import com.github.dozedoff.aidUtil.util.HashKeySet;
+import com.github.dozedoff.aidUtil.util.RunMetrics;
+import com.github.dozedoff.aidUtil.util.StageMetrics;
+import com.github.dozedoff.aidUtil.util.StreamingHasher;
+import com.github.dozedoff.aidUtil.util.StripedCounter;
 import com.github.dozedoff.commonj.file.FileUtil;
-import com.github.dozedoff.commonj.hash.HashMaker;
 import com.github.dozedoff.commonj.time.StopWatch;
 
 public class ModuleManageFiles extends MaintenanceModule {
@@ -64,30 +90,56 @@ public class ModuleManageFiles extends MaintenanceModule {
 	final String BLACKLISTED_DIR = "CHECK";
 	final String DNW_DIR = "DNW";
 	
-	final int WORKERS = 2; // number of threads hashing data and communicating with the DB
-	final int FILE_QUEUE_SIZE = 100; // setting this too high will probably result in "out of memory" errors
+	final long READ_AHEAD_BYTES = 256 * 1024 * 1024; // memory used for files that have been read but not hashed yet
+	final int MAX_BUFFERED_FILE = 32 * 1024 * 1024; // larger files are streamed from disk by the hasher
+	final int QUEUE_ENTRY_COST = 1024; // so empty and streamed files still count against the read-ahead
+	final long POOLED_BUFFER_BYTES = 32 * 1024 * 1024; // idle read buffers kept for reuse, on top of the read-ahead
+	final int HASH_BATCH_SIZE = 50; // max. number of hashes looked up with one query
+	final String SNAPSHOT_DIR = "snapshots";
+	final int WALKER_THREADS = 8; // listing directories is I/O bound, especially on network shares
+	final int PENDING_QUEUE_SIZE = 10000; // files found by the walk, waiting to be read
+	final int PROGRESS_INTERVAL = 1000; // ms between progress updates
+	final int PRUNE_THREADS = 8; // directories checked in parallel while pruning
+	
+	// end of stream markers, compared by identity
+	final Path END_OF_WALK = Paths.get("");
+	final FileData END_OF_DATA = new FileData(END_OF_WALK, null, null, 0, 0, 0);
 	
 	Logger logger = LoggerFactory.getLogger(ModuleManageFiles.class);
 
-	LinkedList<Path> pendingFiles = new LinkedList<>();
+	LinkedBlockingQueue<Path> pendingFiles = new LinkedBlockingQueue<>(PENDING_QUEUE_SIZE);
 	LinkedList<Path> blacklistedDir = new LinkedList<>();
-	LinkedBlockingQueue<FileData> dataQueue = new LinkedBlockingQueue<>(FILE_QUEUE_SIZE);
+	final HashKeySet indexedHashes = new HashKeySet(); // added during this run, guarded by itself
+	LinkedBlockingQueue<FileData> dataQueue = new LinkedBlockingQueue<>(); // bounded by readAhead
+	ByteBudget readAhead = new ByteBudget(READ_AHEAD_BYTES);
+	BufferPool bufferPool = new BufferPool(POOLED_BUFFER_BYTES);
 
-	Thread worker[] = new Thread[WORKERS], producer, etaTracker;
+	ExecutorService readerPool, hasherPool;
+	ForkJoinPool walkerPool;
+	int readerCount, hasherCount;
+	List<Future<?>> readerFutures = new LinkedList<>(), hasherFutures = new LinkedList<>();
+	AtomicInteger activeReaders = new AtomicInteger();
+	AtomicInteger activeHashers = new AtomicInteger();
+	HashStatusCache hashCache = null;
+	volatile IndexPruner pruner = null;
 	StopWatch stopWatch = new StopWatch();
 	StopWatch dirWalkStopwatch = new StopWatch();
 	String locationTag = null;
 	String drive = null;
+	FileSnapshot previousSnapshot, currentSnapshot;
 	
 	// GUI
 	JPanel panelBlacklist = new JPanel();
 	JPanel panelDnw = new JPanel();
 	JPanel panelIndex = new JPanel();
+	JPanel panelPerformance = new JPanel();
 	
 	JCheckBox blMoveTagged = new JCheckBox("Move only (no hashing)");
 	JCheckBox blCheck = new JCheckBox("Check for blacklisted");
 	JCheckBox indexSkip = new JCheckBox("Skip index files");
 	JCheckBox indexPrune = new JCheckBox("Prune index");
+	JCheckBox pruneMissingTrees = new JCheckBox("Prune missing trees");
+	JCheckBox incremental = new JCheckBox("Incremental");
 	
 	JCheckBox dnwCheck = new JCheckBox("Check for DNW");
 	JRadioButton dnwMove = new JRadioButton("Move DNW");
@@ -96,15 +148,27 @@ public class ModuleManageFiles extends MaintenanceModule {
 	ButtonGroup dnwGroup = new ButtonGroup();
 	
 	JCheckBox indexCheck = new JCheckBox("Index files");
+	JCheckBox fastStorage = new JCheckBox("SSD");
+	JCheckBox cacheLists = new JCheckBox("Cache lists");
+	JCheckBox filterIndex = new JCheckBox("Filter index");
 	
 	JProgressBar progressBar = new JProgressBar();
 	
 	// stats
-	int statBlocked, statDir;
-	volatile int statHashed = 0, statToIndex = 0;
-	int statSkipped = 0;
-	boolean stop = false;
-	String duration;
+	int statDir;
+	RunMetrics metrics = new RunMetrics("manageFiles");
+	StageMetrics walkStage = metrics.stage("walk"); // files found that need to be hashed
+	StageMetrics readStage = metrics.stage("read");
+	StageMetrics hashStage = metrics.stage("hash"); // includes unchanged files
+	StageMetrics dbStage = metrics.stage("db");
+	StripedCounter statSkipped = metrics.counter("skipped");
+	StripedCounter statUnchanged = metrics.counter("unchanged");
+	StripedCounter statUnchangedBytes = metrics.counter("unchanged_bytes");
+	StripedCounter statBlocked = metrics.counter("blacklisted");
+	StripedCounter statDnw = metrics.counter("dnw");
+	StripedCounter statIndexed = metrics.counter("indexed");
+	StripedCounter statFailed = metrics.counter("failed");
+	volatile boolean stop = false;
 	
 	public ModuleManageFiles() {
 		super();
@@ -152,20 +216,46 @@ public class ModuleManageFiles extends MaintenanceModule {
 		panelDnw.add(dnwLog, "cell 3 0,alignx left,aligny top");
 		panelDnw.setBorder(BorderFactory.createTitledBorder("DNW"));
 		manageFilesOptions.add(panelDnw, "cell 0 1,alignx left,aligny center");
-		panelIndex.setLayout(new MigLayout("", "[75px][95px][83px]", "[23px]"));
+		panelIndex.setLayout(new MigLayout("", "[75px][95px][83px][83px][120px]", "[23px]"));
 		
 		panelIndex.add(indexCheck, "cell 0 0,alignx left,aligny top");
 		panelIndex.add(indexSkip, "cell 1 0,alignx left,aligny top");
 		panelIndex.add(indexPrune, "cell 2 0,alignx left,aligny top");
+		panelIndex.add(incremental, "cell 3 0,alignx left,aligny top");
+		panelIndex.add(pruneMissingTrees, "cell 4 0,alignx left,aligny top");
 		
 		indexSkip.setToolTipText("If the filepath is found, the file will not be hashed");
 		indexPrune.setToolTipText("Delete index entries with invalid paths");
+		pruneMissingTrees.setToolTipText("Also prune entries when a whole top-level directory is missing");
+		incremental.setToolTipText("Only hash files with a different size or modification time than in the last run");
 		panelIndex.setBorder(BorderFactory.createTitledBorder("Index"));
 		manageFilesOptions.add(panelIndex, "cell 0 2,growx,aligny center");
 		
+		panelPerformance.setLayout(new MigLayout("", "[55px][95px][95px]", "[23px]"));
+		
+		panelPerformance.add(fastStorage, "cell 0 0,alignx left,aligny top");
+		panelPerformance.add(cacheLists, "cell 1 0,alignx left,aligny top");
+		panelPerformance.add(filterIndex, "cell 2 0,alignx left,aligny top");
+		
+		// the index filter is part of the cache
+		cacheLists.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				filterIndex.setEnabled(cacheLists.isSelected());
+			}
+		});
+		
+		filterIndex.setEnabled(false);
+		
+		fastStorage.setToolTipText("Use one reader per hasher, only use this for drives without seek penalty");
+		cacheLists.setToolTipText("Load the blacklist and DNW list into memory before hashing");
+		filterIndex.setToolTipText("Keep a summary of the index in memory, so new files are not looked up");
+		panelPerformance.setBorder(BorderFactory.createTitledBorder("Performance"));
+		manageFilesOptions.add(panelPerformance, "cell 0 3,growx,aligny center");
+		
 		progressBar.setPreferredSize(new Dimension(200, 30));
 		progressBar.setStringPainted(true);
-		manageFilesOptions.add(progressBar, "cell 0 3,growx,aligny center");
+		manageFilesOptions.add(progressBar, "cell 0 4,growx,aligny center");
 		
 		container.add(manageFilesOptions, "cell 0 0,alignx left,aligny top");
 	}
@@ -181,22 +271,23 @@ public class ModuleManageFiles extends MaintenanceModule {
 	@Override
 	public void start() {
 		// reset stats
-		statHashed = 0;
-		statToIndex = 0;
-		statBlocked = 0;
+		metrics.start();
 		statDir = 0;
-		statSkipped = 0;
 		stopWatch.reset();
 		dirWalkStopwatch.reset();
-		duration = "--:--:--";
 		
 		locationTag = null;
+		previousSnapshot = null;
+		currentSnapshot = null;
 		
 		// reset stop flag
 		stop = false;
 		
 		// clear lists
 		blacklistedDir.clear();
+		synchronized (indexedHashes) {
+			indexedHashes.clear();
+		}
 		pendingFiles.clear();
 		dataQueue.clear();
 		
@@ -221,24 +312,30 @@ public class ModuleManageFiles extends MaintenanceModule {
 			pruneIndex();
 		}
 		
+		if(incremental.isSelected()){
+			loadSnapshot();
+		}
+		
+		PathIndex indexEntries = new PathIndex(0);
+		if(indexSkip.isSelected()){
+			indexEntries = loadSkipIndex(locationTag);
+		}
+		
+		// hashing starts right away and picks up files as the walk finds them
+		startWorkers();
+		
 		info("Walking directories...");
 		dirWalkStopwatch.start();
-		try {
-			ArrayList<Path> indexEntries = new ArrayList<>();
-			if(indexSkip.isSelected()){
-				indexEntries = loadIndexedFiles(locationTag);
-			}
-			// go find those files...
-			Files.walkFileTree( f.toPath(), new ImageVisitor(indexEntries));
-		} catch (IOException e) {
-			error("File walk failed");
-			e.printStackTrace();
-		}
+		walkDirectories(f.toPath(), indexEntries);
 		dirWalkStopwatch.stop();
 		
 		info("Walked directories in " + dirWalkStopwatch.getTime() + " skipped " + statSkipped + " files");
 		
-		lookForBlacklisted();
+		awaitWorkers();
+		
+		if(currentSnapshot != null){
+			saveSnapshot(! stop);
+		}
 
 		if(blMoveTagged.isSelected()){
 			info("Moving blacklisted directories...");
@@ -247,139 +344,390 @@ public class ModuleManageFiles extends MaintenanceModule {
 		
 		stopWatch.stop();
 		
-		info("File processing done. " + statHashed +" files hashed, " + statBlocked +" blacklisted files found, " + statDir + " blacklisted Directories moved.");
+		metrics.stop();
+		
+		info("File processing done. " + hashStage.getItems() +" files hashed (" + statUnchanged + " unchanged), " + statBlocked +" blacklisted files found, " + statDir + " blacklisted Directories moved.");
+		info("Throughput: " + metrics.getSummary());
 		info("Mark blacklisted run duration - " + stopWatch.getTime());
+		logger.info(metrics.toLogLine());
 		
 		setStatus("Finished");
 	}
 	
 	/**
 	 * Start the threads needed for hashing files and database lookups.
-	 * Will wait for the threads to die before returning.
+	 * The readers keep running until the walk signals the end of the pending files,
+	 * the hashers until the last reader signals the end of the data.
 	 */
-	private void lookForBlacklisted(){
-		info("Starting worker thread...");
+	private void startWorkers(){
+		int hashers = Settings.getInstance().getFileHasherThreads();
+		int readers = Settings.getInstance().getFileReaderThreads();
 		
-		producer = new DataProducer();
-		producer.start();
+		if(fastStorage.isSelected()){
+			readers = Math.max(readers, hashers);
+		}
+		
+		hashCache = null;
 		
-		etaTracker = new EtaTracker();
-		etaTracker.start();
+		if(cacheLists.isSelected()){
+			hashCache = loadHashCache();
+		}
+		
+		info("Starting " + readers + " reader and " + hashers + " hasher threads...");
+		
+		readerFutures.clear();
+		hasherFutures.clear();
+		readerCount = readers;
+		hasherCount = hashers;
+		activeReaders.set(readers);
+		activeHashers.set(hashers);
+		readAhead = new ByteBudget(READ_AHEAD_BYTES);
+		readerPool = Executors.newFixedThreadPool(readers);
+		hasherPool = Executors.newFixedThreadPool(hashers);
+		
+		startProgressUpdates(PROGRESS_INTERVAL);
 
-		progressBar.setMaximum(pendingFiles.size());
+		for(int i = 0; i < readers; i++){
+			readerFutures.add(readerPool.submit(new DataProducer()));
+		}
 		
-		for(Thread t : worker){
-			t = new DBWorker();
-			t.start();
+		for(int i = 0; i < hashers; i++){
+			hasherFutures.add(hasherPool.submit(new DBWorker()));
 		}
 		
-		while(! pendingFiles.isEmpty()){
-			try {
-				// display some stats while chewing through those files
-				setStatus("Time remaining:  " + duration);
-				progressBar.setValue(statHashed);
-				Thread.sleep(2000);
-			} catch (InterruptedException e) {}
+		// no more tasks, the pools will terminate once the workers are done
+		readerPool.shutdown();
+		hasherPool.shutdown();
+	}
+	
+	/**
+	 * Walk the directories in parallel, adding all files that need to be hashed to the pending files.
+	 */
+	private void walkDirectories(Path root, PathIndex indexEntries){
+		walkerPool = new ForkJoinPool(WALKER_THREADS);
+		
+		try {
+			walkerPool.invoke(new DirectoryScanner(root, new ScanRules(indexEntries)));
+		} catch (RuntimeException e) {
+			if(! stop){
+				logger.error("File walk failed", e);
+				error("File walk failed (" + e.getMessage() + ")");
+			}
+		} finally {
+			walkerPool.shutdown();
+			signalEndOfWalk();
 		}
+	}
 	
+	/**
+	 * Tell every reader that no more files will be added.
+	 * Gives up if the run is cancelled, as the readers might be gone.
+	 */
+	private void signalEndOfWalk(){
+		try {
+			for(int i = 0; i < readerCount; i++){
+				while(! pendingFiles.offer(END_OF_WALK, 1, TimeUnit.SECONDS)){
+					if(stop){
+						return;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Wait for the workers to process all pending files.
+	 */
+	private void awaitWorkers(){
 		info("Wating for worker threads to finish...");
+		waitForWorkers(readerFutures);
+		waitForWorkers(hasherFutures);
+		
+		finishProgressUpdates();
+	}
+	
+	/**
+	 * Load the blacklist and DNW hashes, and the index filter if selected.
+	 * 
+	 * @return the cache, or null if it could not be loaded
+	 */
+	private HashStatusCache loadHashCache(){
+		StopWatch swCache = new StopWatch();
+		Connection con = null;
+		
+		info("Loading hash cache...");
+		swCache.start();
+		
 		try{
-			producer.join();
+			con = getConnectionPool().getConnection();
+			HashStatusCache cache = HashStatusCache.load(con, filterIndex.isSelected());
+			swCache.stop();
 			
-			// wait for threads to clear the worklists
-			for(Thread t : worker){
-				if(t != null){
-					try{t.join();}catch(InterruptedException ie){}
+			info("Cached " + cache.getBlacklistSize() + " blacklisted and " + cache.getDnwSize() + " DNW hashes (" + swCache.getTime() + ")");
+			return cache;
+		}catch(SQLException e){
+			logger.warn("Failed to load hash cache", e);
+			error("Failed to load hash cache, using database lookups");
+			return null;
+		}finally{
+			if(con != null){
+				try {
+					con.close();
+				} catch (SQLException e) {
+					logger.warn("Failed to close databse connection", e);
 				}
 			}
-		}catch(InterruptedException e){}
-		
-		etaTracker.interrupt(); // don't need this anymore since we are finished
+		}
+	}
+	
+	/**
+	 * Join the workers, reporting any that died with an exception.
+	 */
+	private void waitForWorkers(List<Future<?>> workers){
+		for(Future<?> f : workers){
+			try {
+				f.get();
+			} catch (CancellationException e) {
+				// cancelled by the user
+			} catch (ExecutionException e) {
+				logger.error("Worker thread failed", e.getCause());
+				error("Worker thread failed (" + e.getCause().getMessage() + ")");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
 	}
 
 	@Override
 	public void Cancel() {
 		stop = true;
-		if(producer != null){
-			producer.interrupt();
+		
+		IndexPruner activePruner = pruner;
+		
+		if(activePruner != null){
+			activePruner.cancel();
 		}
 		
 		pendingFiles.clear();
 		
-		for(Thread t : worker){
-			if(t != null){
-				t.interrupt();
-			}
+		if(walkerPool != null){
+			walkerPool.shutdownNow();
+		}
+		
+		cancelWorkers(readerFutures);
+		cancelWorkers(hasherFutures);
+		
+		if(readerPool != null){
+			readerPool.shutdownNow();
+		}
+		
+		if(hasherPool != null){
+			hasherPool.shutdownNow();
+		}
+	}
+	
+	private void cancelWorkers(List<Future<?>> workers){
+		for(Future<?> f : workers){
+			f.cancel(true);
 		}
 	}
 	
-	class ImageVisitor extends SimpleFileVisitor<Path>{
+	/**
+	 * Rules for selecting the files to hash, shared by all scanner tasks.
+	 */
+	class ScanRules {
 		final String[] ignoredDir = {BLACKLISTED_DIR,DNW_DIR, "$RECYCLE.BIN", "System Volume Information"};
 		final ArrayList<Path> ignoredPaths = new ArrayList<>(ignoredDir.length);
-		final ArrayList<Path> indexed;
+		final PathIndex indexed;
+		final int rootLength;
 		
-		ImageFilter imgFilter = new ImageFilter();
-		boolean skip = false;
+		final ImageFilter imgFilter = new ImageFilter();
+		final boolean skip;
 		
-		public ImageVisitor(ArrayList<Path> indexed){
+		public ScanRules(PathIndex indexed){
 			this.indexed = indexed;
+			this.rootLength = Paths.get(getPath()).getRoot().toString().length();
 			
 			for(String s : ignoredDir){
 				ignoredPaths.add(Paths.get(getPath()).getRoot().resolve(s));
 			}
 			
-			if(indexSkip.isSelected()){
-				skip = true;
-			}
-		}
-		
-		
-		@Override
-		public FileVisitResult preVisitDirectory(Path arg0, BasicFileAttributes arg1) throws IOException {
-			// don't go there...
-			if(ignoredPaths.contains(arg0)){
-				return FileVisitResult.SKIP_SUBTREE;
-			}
-			
-			setStatus("Scanning " + arg0.toString());
-			return super.preVisitDirectory(arg0, arg1);
+			skip = indexSkip.isSelected();
 		}
 		
-		@Override
-		public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-			if(stop){
-				return FileVisitResult.TERMINATE;
+		/**
+		 * Add the file to the pending files, waiting for room if the readers fall behind.
+		 * The fork/join pool is told about the blocking so it can compensate.
+		 */
+		void queueFile(final Path file){
+			try {
+				ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+					boolean queued = false;
+					
+					@Override
+					public boolean block() throws InterruptedException {
+						pendingFiles.put(file);
+						queued = true;
+						return true;
+					}
+					
+					@Override
+					public boolean isReleasable() {
+						return queued || (queued = pendingFiles.offer(file));
+					}
+				});
+			} catch (InterruptedException e) {
+				// the walk was cancelled
+				Thread.currentThread().interrupt();
 			}
-			
-			return super.postVisitDirectory(dir, exc);
 		}
 		
-		@Override
-		public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-			error("Could not read file: " + exc.getMessage());
-			return FileVisitResult.CONTINUE;
+		boolean isIgnored(Path directory){
+			return ignoredPaths.contains(directory);
 		}
 		
-		@Override
-		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)throws IOException {
+		void visitFile(Path file, BasicFileAttributes attributes){
 			String filename = file.getFileName().toString();
 
 			if(! filename.startsWith(BLACKLISTED_TAG) && imgFilter.accept(null, filename)){
 				if(skip){
-					if(Collections.binarySearch(indexed, FileUtil.removeDriveLetter(file)) >= 0){
-						statSkipped++;
-						return FileVisitResult.CONTINUE;
+					if(indexed.contains(file.toString(), rootLength)){
+						statSkipped.increment();
+						keepSnapshotEntry(file);
+						return;
 					}
 				}
-				statToIndex++;
-				pendingFiles.add(file);
+				walkStage.count(1, attributes.size());
+				queueFile(file);
 			}else if (filename.startsWith(BLACKLISTED_TAG)){
 				addBlacklisted(file.getParent());
 			}
-			return super.visitFile(file, attrs);
 		}
 	}
 	
+	/**
+	 * Lists a directory and forks a new task for every sub-directory,
+	 * so directories are listed concurrently.
+	 */
+	class DirectoryScanner extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		final Path directory;
+		final ScanRules rules;
+		
+		public DirectoryScanner(Path directory, ScanRules rules){
+			this.directory = directory;
+			this.rules = rules;
+		}
+		
+		@Override
+		protected void compute() {
+			if(stop || Thread.currentThread().isInterrupted()){
+				return;
+			}
+			
+			LinkedList<DirectoryScanner> subDirectories = new LinkedList<>();
+			
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				for(Path entry : stream){
+					if(stop || Thread.currentThread().isInterrupted()){
+						return;
+					}
+					
+					BasicFileAttributes attributes;
+					
+					try {
+						attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					} catch (IOException e) {
+						error("Could not read file: " + e.getMessage());
+						continue;
+					}
+					
+					if(attributes.isDirectory()){
+						// don't go there...
+						if(! rules.isIgnored(entry)){
+							subDirectories.add(new DirectoryScanner(entry, rules));
+						}
+					}else{
+						rules.visitFile(entry, attributes);
+					}
+				}
+			} catch (IOException | DirectoryIteratorException e) {
+				error("Could not read directory: " + e.getMessage());
+			}
+			
+			invokeAll(subDirectories);
+		}
+	}
+	
+	private Path snapshotFile(String location){
+		return FileUtil.WorkingDir().toPath().resolve(SNAPSHOT_DIR).resolve("snapshot-" + location.replaceAll("[^\\w-]", "_") + ".dat");
+	}
+	
+	private void loadSnapshot(){
+		Path snapshotFile = snapshotFile(locationTag);
+		
+		try {
+			previousSnapshot = FileSnapshot.load(snapshotFile);
+			info("Loaded snapshot with " + previousSnapshot.size() + " files");
+		} catch (IOException e) {
+			logger.warn("Failed to load snapshot {}", snapshotFile, e);
+			error("Failed to load snapshot, all files will be hashed (" + e.getMessage() + ")");
+			previousSnapshot = new FileSnapshot();
+		}
+		
+		currentSnapshot = new FileSnapshot(previousSnapshot.size(), snapshotScope(Paths.get(getPath())));
+	}
+	
+	/**
+	 * The scanned directory relative to the drive root, normalized like the fingerprints.
+	 */
+	private String snapshotScope(Path directory){
+		String scope = directory.toString().substring(drive.length());
+		
+		if(! scope.isEmpty() && ! scope.endsWith(File.separator)){
+			scope += File.separator;
+		}
+		
+		return PathIndex.PLATFORM_IGNORES_CASE ? scope.toLowerCase(Locale.ROOT) : scope;
+	}
+	
+	/**
+	 * @param complete if false, the run was cancelled and all entries of the previous snapshot are kept
+	 */
+	private void saveSnapshot(boolean complete){
+		Path snapshotFile = snapshotFile(locationTag);
+		int unvisited = complete ? currentSnapshot.addUncovered(previousSnapshot) : currentSnapshot.addMissing(previousSnapshot);
+		logger.info("Kept {} snapshot entries of files not visited in this run", unvisited);
+		
+		try {
+			currentSnapshot.save(snapshotFile);
+			info("Saved snapshot with " + currentSnapshot.size() + " files");
+		} catch (IOException e) {
+			logger.warn("Failed to save snapshot {}", snapshotFile, e);
+			error("Failed to save snapshot (" + e.getMessage() + ")");
+		}
+	}
+	
+	/**
+	 * Carry the previous snapshot entry of a file over, if the file was not read in this run.
+	 */
+	private void keepSnapshotEntry(Path file){
+		if(currentSnapshot != null){
+			currentSnapshot.keep(previousSnapshot, fingerprint(file));
+		}
+	}
+	
+	/**
+	 * Fingerprint of the path relative to the drive root.
+	 */
+	private long fingerprint(Path path){
+		return PathIndex.fingerprint(path.toString(), drive.length(), PathIndex.PLATFORM_IGNORES_CASE);
+	}
+	
 	private void renameFile(Path path, String hash){
 		// create filename with prefix WARNING-{hash}-
 		StringBuilder sb = new StringBuilder();
@@ -398,7 +746,7 @@ public class ModuleManageFiles extends MaintenanceModule {
 		warning("Blacklisted file found in " + path.getParent().toString());
 	}
 	
-	private void addBlacklisted(Path path){
+	private synchronized void addBlacklisted(Path path){
 		if(! blacklistedDir.contains(path)){
 			blacklistedDir.add(path);
 		}
@@ -416,285 +764,494 @@ public class ModuleManageFiles extends MaintenanceModule {
 	}
 	
 	private void pruneIndex(){
-		int pruned = 0;
-		int counter = 0;
-		AidDAO sql = new AidDAO(getConnectionPool());
 		StopWatch swPrune = new StopWatch();
 		
-		ArrayList<Path> index = loadIndexedFiles(locationTag);
-		
 		swPrune.start();
 		info("Pruning index...");
 		setStatus("Pruning index...");
-		progressBar.setMaximum(index.size());
 		
-		for(Path relativePath : index){
-			if(stop){
-				break;
-			}
-			
-			Path path = Paths.get(drive).resolve(relativePath);
+		pruner = new IndexPruner(getConnectionPool(), locationTag, Paths.get(drive), PRUNE_THREADS);
+		pruner.setPruneMissingTrees(pruneMissingTrees.isSelected());
+		startProgressUpdates(PROGRESS_INTERVAL);
+		
+		try {
+			long pruned = pruner.prune();
+			swPrune.stop();
+			info("Pruned " + pruned + " entries from the index in " + swPrune.getTime());
 			
-			if(! Files.exists(path)){
-				sql.deleteIndexByPath(relativePath);
-				sql.deleteDuplicateByPath(relativePath);
-				pruned++;
+			if(pruner.getFailed() > 0){
+				error("Failed to prune " + pruner.getFailed() + " entries");
 			}
 			
-			counter++;
-			progressBar.setValue(counter);
+			if(pruner.getKept() > 0){
+				error("Kept " + pruner.getKept() + " entries, missing directories: " + pruner.getMissingTrees());
+			}
+		} catch (IOException e) {
+			error("Not pruning index, " + e.getMessage());
+		} catch (SQLException e) {
+			logger.warn("Failed to load index for pruning", e);
+			error("Failed to prune index (" + e.getMessage() + ")");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stopProgressUpdates();
+			pruner = null;
 		}
-		swPrune.stop();
-		info("Pruned " + pruned + " entries from the index in " + swPrune.getTime());
 	}
 	
-	private ArrayList<Path> loadIndexedFiles(String location){
-			ArrayList<Path> indexedPaths = new ArrayList<>();
-			StopWatch swLoad = new StopWatch();
-			
-			swLoad.start();
-			info("Fetching file list from DB...");
+	/**
+	 * Load the paths of all indexed files for the location into a skip index.
+	 */
+	private PathIndex loadSkipIndex(String location){
+		PathIndex index = null;
+		StopWatch swLoad = new StopWatch();
+		
+		swLoad.start();
+		info("Fetching file list from DB...");
+		
+		try (Connection con = getConnectionPool().getConnection()) {
+			index = new PathIndex(countIndexed(con, location));
 			
-			PreparedStatement prepStmt;
-			Connection con = null;
-			ResultSet rs = null;
-			try{
-				con = getConnectionPool().getConnection();
-				prepStmt = con.prepareStatement("SELECT `fullpath` FROM `indexview` WHERE location = ?");
-				
-				prepStmt.setString(1, location);
-				rs = prepStmt.executeQuery();
-				
-				while(rs.next()){
-					indexedPaths.add(Paths.get(rs.getString(1)));
+			final PathIndex loading = index;
+			IndexedPaths.forEachPath(con, location, new IndexedPaths.PathHandler() {
+				@Override
+				public void handle(String fullPath) {
+					loading.add(fullPath);
 				}
-				
-				rs.close();
-			}catch(SQLException e){
-				logger.warn("Failed to load indexed entries", e);
-			}finally{
-				if(rs != null) {
+			});
+		} catch (SQLException e) {
+			logger.warn("Failed to load indexed entries", e);
+		}
+		
+		if(index == null){
+			index = new PathIndex(0);
+		}
+		
+		swLoad.stop();
+		info("Loaded "+index.size()+" index entries from the DB (" + swLoad.getTime() +")");
+		
+		return index;
+	}
+	
+	private int countIndexed(Connection con, String location) throws SQLException {
+		try (PreparedStatement count = con.prepareStatement("SELECT COUNT(*) FROM `indexview` WHERE location = ?")) {
+			count.setString(1, location);
+			
+			try (ResultSet rs = count.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : 0;
+			}
+		}
+	}
+	
+	/**
+	 * Reads pending files into the data queue until the end of the walk is reached.
+	 * The total size of the queued data is limited by the read-ahead budget.
+	 */
+	class DataProducer implements Runnable {
+		@Override
+		public void run() {
+			try {
+				while(! Thread.currentThread().isInterrupted() && activeHashers.get() > 0){
 					try {
-						rs.close();
-					} catch (SQLException e) {
-						logger.warn("Failed to close ResultSet");
+						Path p = pendingFiles.take();
+						
+						if(p == END_OF_WALK){
+							break;
+						}
+						
+						dataQueue.add(read(p));
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (IOException e) {
+						error("Failed to read " + e.getMessage());
 					}
 				}
-				
-				if(con != null){
-					try {
-						con.close();
-					} catch (SQLException e) {
-						logger.warn("Failed to close databse connection", e);
+			} finally {
+				// the last reader tells the hashers that there is no more data
+				if(activeReaders.decrementAndGet() == 0){
+					for(int i = 0; i < hasherCount; i++){
+						dataQueue.add(END_OF_DATA);
 					}
 				}
 			}
-			
-			info("Loaded "+indexedPaths.size()+" index entries from the DB");
-			info("Performing sort...");
-			Collections.sort(indexedPaths); // sort the list so we can use binary search
-			swLoad.stop();
-			
-			info("Indexed list ready...(" + swLoad.getTime() +")");
-			
-			return indexedPaths;
-	}
-	
-	class DataProducer extends Thread {
-		BinaryFileReader bfr = new BinaryFileReader();
+		}
 		
-		public DataProducer(){
-			super("Data Producer");
+		/**
+		 * Wait for room in the read-ahead budget.
+		 * Gives up if the run is cancelled or no hasher is left to free the budget.
+		 */
+		private void reserve(long bytes) throws InterruptedException {
+			while(! readAhead.tryAcquire(bytes, 1, TimeUnit.SECONDS)){
+				if(stop || activeHashers.get() == 0){
+					throw new InterruptedException("No hashers left to take the data");
+				}
+			}
 		}
 		
-		@Override
-		public void run() {
-			while(! isInterrupted() && (! pendingFiles.isEmpty())){
-				Path p = pendingFiles.remove();
-
+		private FileData read(Path path) throws IOException, InterruptedException {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			long size = attributes.size();
+			long modified = attributes.lastModifiedTime().toMillis();
+			
+			if(previousSnapshot != null){
+				String hash = previousSnapshot.getHash(fingerprint(path), size, modified);
+				
+				if(hash != null){
+					reserve(QUEUE_ENTRY_COST);
+					return new FileData(path, null, hash, size, modified, QUEUE_ENTRY_COST);
+				}
+			}
+			
+			if(size > MAX_BUFFERED_FILE){
+				reserve(QUEUE_ENTRY_COST);
+				return new FileData(path, null, null, size, modified, QUEUE_ENTRY_COST);
+			}
+			
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				long cost = Math.max(bufferPool.capacityFor((int)size), QUEUE_ENTRY_COST);
+				reserve(cost);
+				ByteBuffer buffer = null;
+				
 				try {
-					try {
-						dataQueue.put(new FileData(p, bfr.get(p.toFile())));
-					} catch (InterruptedException e) {
-						interrupt();
+					long start = System.nanoTime();
+					buffer = bufferPool.acquire((int)size);
+					
+					while(buffer.hasRemaining() && channel.read(buffer) != -1){
+						// read until the buffer is full
+					}
+					
+					buffer.flip();
+					readStage.record(1, buffer.limit(), System.nanoTime() - start);
+					FileData data = new FileData(path, buffer, null, size, modified, cost);
+					buffer = null;
+					return data;
+				} finally {
+					if(buffer != null){
+						bufferPool.release(buffer);
+						readAhead.release(cost);
 					}
-				} catch (IOException e) {
-					error("Failed to read " + e.getMessage());
 				}
 			}
 		}
 	}
 	
+	/**
+	 * A file waiting to be hashed. If hash is set, the file is unchanged since the last run.
+	 * Otherwise, if data is null, the file is too large to be buffered and has to be read by the hasher.
+	 */
 	class FileData{
-		final byte[] data;
+		final ByteBuffer data;
 		final Path file;
+		final String hash;
+		final long size, modified;
+		final long cost;
 		
-		public FileData(Path file, byte[] data) {
+		private boolean released = false;
+		
+		public FileData(Path file, ByteBuffer data, String hash, long size, long modified, long cost) {
 			this.file = file;
 			this.data = data;
+			this.hash = hash;
+			this.size = size;
+			this.modified = modified;
+			this.cost = cost;
+		}
+		
+		/**
+		 * Return the buffer and the read-ahead bytes. Only the first call has an effect.
+		 */
+		void release() {
+			if(released){
+				return;
+			}
+			
+			released = true;
+			bufferPool.release(data);
+			readAhead.release(cost);
 		}
 	}
 	
-	class DBWorker extends Thread{
+	/**
+	 * Hashes the data read by the producers and checks the hashes against the DB.
+	 * Runs until the end of the data is reached.
+	 */
+	class DBWorker implements Runnable {
 		AidDAO sql = new AidDAO(getConnectionPool());
-		HashMaker hm = new HashMaker();
+		StreamingHasher hasher = new StreamingHasher();
+		HashClassifier classifier;
+		ArrayList<FileData> batch = new ArrayList<>(HASH_BATCH_SIZE);
+		
+		boolean index = indexCheck.isSelected();
 		
 		public DBWorker(){
-			super("DB Worker");
+			EnumSet<HashStatus> checked = EnumSet.noneOf(HashStatus.class);
+			
+			if(blCheck.isSelected()){
+				checked.add(HashStatus.BLACKLISTED);
+			}
+			
+			if(dnwCheck.isSelected()){
+				checked.add(HashStatus.DNW);
+			}
+			
+			if(index){
+				checked.add(HashStatus.INDEXED);
+			}
+			
+			classifier = new HashClassifier(getConnectionPool(), checked, hashCache);
 		}
 		
 		@Override
 		public void run() {
-			boolean blc = blCheck.isSelected();
-			boolean index = indexCheck.isSelected();
-			boolean dnw = dnwCheck.isSelected();
+			boolean endOfData = false;
 			
-			while((! isInterrupted()) && (producer.isAlive() || (! dataQueue.isEmpty()))){
-				String hash;
-				FileData fd;
-				
-				try {
-					fd = dataQueue.take();
-					
-					hash = hm.hash(fd.data);
-					// track stats
-					statHashed++;
-
-					// see if any files are blacklisted
-					if(blc && sql.isBlacklisted(hash)){
-						statBlocked++;
-						renameFile(fd.file, hash);
-						addBlacklisted(fd.file.getParent());
-						continue;
-					}
-					
-					// see if there are any DNW files
-					if(dnw && sql.isDnw(hash)){
-						if(dnwLog.isSelected()){
-							info("Found DNW " + fd.file.toString());
-						}else if(dnwDelete.isSelected()){
-							try {
-								Files.delete(fd.file);
-								info("Deleted DNW " + fd.file.toString());
-							} catch (IOException e) {
-								error("Failed to delete DNW " + fd.file.toString());
-							}
-						}else if(dnwMove.isSelected()){
-							try {
-								FileUtil.moveFileWithStructure(fd.file, fd.file.getRoot().resolve(DNW_DIR));
-								info("Moved DNW " + fd.file.toString() + " to " + fd.file.getRoot().resolve(DNW_DIR).toString());
-							} catch (IOException e) {
-								error("Failed to move DNW " + fd.file.toString());
-							}
-						}
+			try {
+				while(! endOfData && ! Thread.currentThread().isInterrupted()){
+					try {
+						FileData fd = dataQueue.take();
 						
-						continue;
-					}
-					
-					//index the file
-					if(index){
-						File f = fd.file.toFile();
-						if(sql.isHashed(hash)){
-							// removed duplicate adding due to unreliable code
-							logger.info("Hash {} for {} found in db, ignoring file", hash, f);
-						}else{
-							if(! sql.addIndex(hash, f.toString(), f.length(), locationTag)){
-								logger.warn("Failed to add index for {} - {}", f, hash);
-								error("Failed to add index for " + f.toString() + " - " + hash);
-							}
-						}
+						// take whatever else is ready, but don't wait for a full batch
+						batch.clear();
+						batch.add(fd);
+						dataQueue.drainTo(batch, HASH_BATCH_SIZE - 1);
+						
+						endOfData = removeEndMarkers();
+						processBatch();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
 					}
-				} catch (InterruptedException e) {
-					interrupt();
+				}
+			} finally {
+				// files of a failed batch still hold their share of the budget
+				for(FileData fd : batch){
+					fd.release();
+				}
+				
+				if(activeHashers.decrementAndGet() == 0 && ! endOfData){
+					abandonData();
 				}
 			}
 		}
-	}
-	
-	/**
-	 * This thread calculates the estimated time remaining until
-	 * the task is complete.
-	 */
-	class EtaTracker extends Thread {
-		int before, after;
-		final int POLL_INTERVALL = 5;
-		final int WINDOW_SIZE = 12;
 		
-		LinkedList<Integer> window = new LinkedList<>();
-		
-		public EtaTracker(){
-			super("EtaTracker");
+		/**
+		 * The last hasher is gone before the end of the data, nothing will take the queued files.
+		 */
+		private void abandonData() {
+			if(! stop){
+				error("All hasher threads stopped, cancelling");
+				Cancel();
+			}
 			
-			// init window
-			for(int i=0; i<WINDOW_SIZE; i++){
-				window.add(0);
+			FileData fd;
+			
+			while((fd = dataQueue.poll()) != null){
+				fd.release();
 			}
 		}
 		
-		@Override
-		public void run() {
-			while(! isInterrupted()){
-				try {
-					pollDelta();
-					calcTime();
-					updateGUI();
-				} catch (InterruptedException e) {
-					interrupt();
+		/**
+		 * Remove end of data markers from the batch. Markers meant for
+		 * other hashers are put back.
+		 * 
+		 * @return true if the end of the data was reached
+		 */
+		private boolean removeEndMarkers() {
+			int markers = 0;
+			Iterator<FileData> iterator = batch.iterator();
+			
+			while(iterator.hasNext()){
+				if(iterator.next() == END_OF_DATA){
+					iterator.remove();
+					markers++;
 				}
-				
 			}
 			
-			updateGUI();
+			for(int i = 1; i < markers; i++){
+				dataQueue.add(END_OF_DATA);
+			}
+			
+			return markers > 0;
 		}
 		
-		private void pollDelta() throws InterruptedException{
-			before = pendingFiles.size();
-			sleep(POLL_INTERVALL * 1000);
-			after = pendingFiles.size();
+		private void processBatch() {
+			LinkedHashMap<Path, String> hashes = new LinkedHashMap<>();
 			
-			int delta = before - after;
+			for(FileData fd : batch){
+				try {
+					hashes.put(fd.file, hash(fd));
+				} catch (IOException e) {
+					statFailed.increment();
+					error("Failed to read " + e.getMessage());
+				}
+			}
+			
+			Map<String, HashStatus> status;
 			
-			// invalid value
-			if(delta <= 0){
-				duration = "--:--:--";
+			try {
+				long start = System.nanoTime();
+				status = classifier.classify(hashes.values());
+				dbStage.record(1, 0, System.nanoTime() - start);
+			} catch (SQLException e) {
+				statFailed.add(hashes.size());
+				logger.warn("Failed to classify {} hashes", hashes.size(), e);
+				error("Failed to look up hashes (" + e.getMessage() + ")");
 				return;
 			}
 			
-			window.pop();
-			window.add(delta);
+			for(Entry<Path, String> entry : hashes.entrySet()){
+				handleFile(entry.getKey(), entry.getValue(), status.get(entry.getValue()));
+			}
 		}
 		
-		private void updateGUI() {
-			// display some stats while chewing through those files
-			setStatus("Time remaining:  " + duration);
-			progressBar.setMaximum(statToIndex);
-			progressBar.setValue(statHashed);
-			progressBar.setString(statHashed + " / " + statToIndex);
+		/**
+		 * @return true if no other worker has indexed the hash in this run
+		 */
+		private boolean markIndexing(String hash) {
+			synchronized (indexedHashes) {
+				return indexedHashes.add(hash);
+			}
 		}
-
-		private void calcTime(){
-			int count = 0, mean = 0;
+		
+		/**
+		 * Act on the file according to the list its hash was found in.
+		 */
+		private void handleFile(Path file, String hash, HashStatus status) {
+			// see if any files are blacklisted
+			if(status == HashStatus.BLACKLISTED){
+				statBlocked.increment();
+				renameFile(file, hash);
+				addBlacklisted(file.getParent());
+				return;
+			}
 			
-			for(int i : window){
-				if(i > 0){
-					mean += i;
-					count++;
+			// see if there are any DNW files
+			if(status == HashStatus.DNW){
+				statDnw.increment();
+				
+				if(dnwLog.isSelected()){
+					info("Found DNW " + file.toString());
+				}else if(dnwDelete.isSelected()){
+					try {
+						Files.delete(file);
+						info("Deleted DNW " + file.toString());
+					} catch (IOException e) {
+						error("Failed to delete DNW " + file.toString());
+					}
+				}else if(dnwMove.isSelected()){
+					try {
+						FileUtil.moveFileWithStructure(file, file.getRoot().resolve(DNW_DIR));
+						info("Moved DNW " + file.toString() + " to " + file.getRoot().resolve(DNW_DIR).toString());
+					} catch (IOException e) {
+						error("Failed to move DNW " + file.toString());
+					}
 				}
+				
+				return;
 			}
 			
-			mean = mean / count;
+			//index the file
+			if(! index){
+				return;
+			}
 			
-			int seconds = (pendingFiles.size() / mean) * POLL_INTERVALL;
+			File f = file.toFile();
 			
-			int hours = seconds / (60*60);
-			seconds =  seconds - (hours * 60 * 60);
-			int minutes = seconds / 60;
-			seconds = seconds - (minutes * 60);
+			// other workers may be indexing an identical file right now, only the first one adds it
+			if(status == HashStatus.INDEXED || ! markIndexing(hash)){
+				// removed duplicate adding due to unreliable code
+				logger.info("Hash {} for {} found in db, ignoring file", hash, f);
+				return;
+			}
 			
-			final String template = "%1$02d:%2$02d:%3$02d"; //  hours:minutes:seconds , with leading zero if necessary 
+			long start = System.nanoTime();
+			boolean added = sql.addIndex(hash, f.toString(), f.length(), locationTag);
+			dbStage.record(1, 0, System.nanoTime() - start);
 			
-			duration = String.format(template, hours,minutes,seconds);
+			if(! added){
+				synchronized (indexedHashes) {
+					indexedHashes.remove(hash);
+				}
+				
+				statFailed.increment();
+				logger.warn("Failed to add index for {} - {}", f, hash);
+				error("Failed to add index for " + f.toString() + " - " + hash);
+				return;
+			}
+			
+			if(hashCache != null){
+				hashCache.markIndexed(hash);
+			}
+			
+			statIndexed.increment();
 		}
+		
+		/**
+		 * Hash the file and hand the buffer and the read-ahead back.
+		 * The hash is recorded in the snapshot, if there is one.
+		 */
+		private String hash(FileData fd) throws IOException {
+			String hash;
+			
+			try {
+				long start = System.nanoTime();
+				
+				if(fd.hash != null){
+					hash = fd.hash;
+					statUnchanged.increment();
+					statUnchangedBytes.add(fd.size);
+					hashStage.count(1, 0);
+				}else if(fd.data == null){
+					hash = hasher.hash(fd.file);
+					hashStage.record(1, hasher.getBytesHashed(), System.nanoTime() - start);
+				}else{
+					hash = hasher.hash(fd.data);
+					hashStage.record(1, hasher.getBytesHashed(), System.nanoTime() - start);
+				}
+			} finally {
+				fd.release();
+			}
+			
+			if(currentSnapshot != null){
+				currentSnapshot.put(fingerprint(fd.file), fd.size, fd.modified, hash);
+			}
+			
+			return hash;
+		}
+	}
+	
+	/**
+	 * Estimate the time remaining from the bytes that were hashed, and display the progress.
+	 */
+	@Override
+	protected void updateProgress() {
+		IndexPruner activePruner = pruner;
+		
+		if(activePruner != null){
+			setStatus("Pruning index... " + activePruner.getPruned() + " entries pruned");
+			setProgress(activePruner.getChecked(), activePruner.getTotal());
+			progressBar.setString(activePruner.getChecked() + " / " + activePruner.getTotal());
+			return;
+		}
+		
+		long found = walkStage.getItems().sum();
+		long hashed = hashStage.getItems().sum();
+		long completedBytes = hashStage.getBytes().sum() + statUnchangedBytes.sum();
+		
+		getEta().update(completedBytes, walkStage.getBytes().sum());
+		
+		setStatus("Time remaining:  " + getEta().getRemaining() + " - " + metrics.getSummary());
+		setProgress(hashed, found);
+		progressBar.setString(hashed + " / " + found);
+	}
+	
+	/**
+	 * Counts that do not fit into an int are scaled down, so the bar still shows the right ratio.
+	 */
+	private void setProgress(long value, long maximum){
+		long scale = maximum / Integer.MAX_VALUE + 1;
+		
+		progressBar.setMaximum((int)(maximum / scale));
+		progressBar.setValue((int)(Math.min(value, maximum) / scale));
 	}
 	
 	class ImageFilter implements FilenameFilter {
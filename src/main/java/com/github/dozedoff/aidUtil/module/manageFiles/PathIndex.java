@@ -0,0 +1,108 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.manageFiles;
+
+import java.io.File;
+
+import com.github.dozedoff.aidUtil.util.LongHashSet;
+
+/**
+ * Set of indexed paths, stored as 64 bit fingerprints of the path relative to the drive root.
+ * Lookups do not allocate, so it can be queried for every file during a directory walk.
+ * A fingerprint collision makes an unindexed file look indexed, with 64 bit fingerprints
+ * this is very unlikely even for millions of paths.
+ */
+public class PathIndex {
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	
+	/**
+	 * True if the file system ignores case (Windows).
+	 */
+	public static final boolean PLATFORM_IGNORES_CASE = File.separatorChar == '\\';
+	
+	private final LongHashSet fingerprints;
+	private final boolean ignoreCase;
+	
+	/**
+	 * Create an index that ignores case if the file system does.
+	 */
+	public PathIndex(int expectedSize) {
+		this(expectedSize, PLATFORM_IGNORES_CASE);
+	}
+	
+	public PathIndex(int expectedSize, boolean ignoreCase) {
+		this.fingerprints = new LongHashSet(expectedSize);
+		this.ignoreCase = ignoreCase;
+	}
+	
+	/**
+	 * Add a path relative to the drive root, as stored in the database.
+	 */
+	public void add(CharSequence relativePath) {
+		fingerprints.add(fingerprint(relativePath, 0, ignoreCase));
+	}
+	
+	/**
+	 * Check if a path is in the index.
+	 * 
+	 * @param path the absolute path
+	 * @param rootLength length of the root part of the path, e.g. 3 for C:\
+	 */
+	public boolean contains(CharSequence path, int rootLength) {
+		return fingerprints.contains(fingerprint(path, rootLength, ignoreCase));
+	}
+	
+	public int size() {
+		return fingerprints.size();
+	}
+	
+	/**
+	 * Hash the path with both separators treated the same and leading separators ignored.
+	 * 
+	 * @param offset number of characters to skip, used to ignore the root of absolute paths
+	 */
+	public static long fingerprint(CharSequence path, int offset, boolean ignoreCase) {
+		int length = path.length();
+		
+		while(offset < length && isSeparator(path.charAt(offset))){
+			offset++;
+		}
+		
+		long hash = FNV_OFFSET;
+		
+		for(int i = offset; i < length; i++){
+			char c = path.charAt(i);
+			
+			if(isSeparator(c)){
+				c = '/';
+			}else if(ignoreCase){
+				c = Character.toLowerCase(c);
+			}
+			
+			hash ^= c;
+			hash *= FNV_PRIME;
+		}
+		
+		return hash;
+	}
+	
+	private static boolean isSeparator(char c) {
+		return c == '/' || c == '\\';
+	}
+}
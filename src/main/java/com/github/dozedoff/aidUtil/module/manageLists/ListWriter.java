@@ -0,0 +1,160 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.module.manageLists;
+
+import io.AidTables;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.aidUtil.util.ListService;
+import com.github.dozedoff.aidUtil.util.StageMetrics;
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+/**
+ * Collects hashes and applies a list mode to them in batches, every batch in a
+ * single transaction. Safe to use from multiple threads.
+ */
+public class ListWriter {
+	public enum ListMode {
+		DNW(AidTables.Dnw, false),
+		BLACKLIST(AidTables.Block, false),
+		UN_DNW(AidTables.Dnw, true),
+		UN_BLACKLIST(AidTables.Block, true);
+		
+		private final AidTables list;
+		private final boolean remove;
+		
+		private ListMode(AidTables list, boolean remove) {
+			this.list = list;
+			this.remove = remove;
+		}
+		
+		public AidTables getList() {
+			return list;
+		}
+		
+		/**
+		 * @return true if the hashes are removed from the list, false if they are moved to it
+		 */
+		public boolean isRemove() {
+			return remove;
+		}
+	}
+	
+	private final ListService listService;
+	private final ListMode mode;
+	private final int batchSize;
+	private final StageMetrics writeStage;
+	
+	private final List<String> pending;
+	private final AtomicLong written = new AtomicLong(), failed = new AtomicLong();
+	
+	private static Logger logger = LoggerFactory.getLogger(ListWriter.class);
+	
+	/**
+	 * @param batchSize number of hashes that are written together
+	 * @param writeStage records the written hashes and the time each batch took
+	 */
+	public ListWriter(ConnectionPool connPool, ListMode mode, int batchSize, StageMetrics writeStage) {
+		this.listService = new ListService(connPool);
+		this.mode = mode;
+		this.batchSize = batchSize;
+		this.writeStage = writeStage;
+		this.pending = new ArrayList<>(batchSize);
+	}
+	
+	/**
+	 * Queue the hash, the batch is written once it is full.
+	 */
+	public void add(String hash) {
+		List<String> batch = null;
+		
+		synchronized (pending) {
+			pending.add(hash);
+			
+			if(pending.size() >= batchSize){
+				batch = takePending();
+			}
+		}
+		
+		if(batch != null){
+			write(batch);
+		}
+	}
+	
+	/**
+	 * Write all queued hashes.
+	 */
+	public void flush() {
+		List<String> batch;
+		
+		synchronized (pending) {
+			batch = takePending();
+		}
+		
+		write(batch);
+	}
+	
+	/**
+	 * Number of hashes that were written.
+	 */
+	public long getWritten() {
+		return written.get();
+	}
+	
+	/**
+	 * Number of hashes that could not be written.
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+	
+	private List<String> takePending() {
+		List<String> batch = new ArrayList<>(pending);
+		pending.clear();
+		return batch;
+	}
+	
+	private void write(List<String> batch) {
+		if(batch.isEmpty()){
+			return;
+		}
+		
+		long start = System.nanoTime();
+		
+		try {
+			if(mode.isRemove()){
+				listService.removeFromList(batch, mode.getList());
+			}else{
+				listService.moveToList(batch, mode.getList());
+			}
+			
+			written.addAndGet(batch.size());
+			writeStage.record(batch.size(), 0, System.nanoTime() - start);
+		} catch (SQLException e) {
+			logger.warn("Failed to write batch of {} hashes for mode {}", new Object[]{batch.size(), mode, e});
+			failed.addAndGet(batch.size());
+		}
+	}
+}
@@ -17,9 +17,6 @@
  */
 package com.github.dozedoff.aidUtil.module.manageLists;
 
-import io.AidDAO;
-import io.AidTables;
-
 import java.awt.Container;
 import java.io.File;
 import java.io.IOException;
@@ -28,6 +25,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
@@ -36,17 +37,40 @@ import javax.swing.JRadioButton;
 
 import net.miginfocom.swing.MigLayout;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.aidUtil.app.Settings;
 import com.github.dozedoff.aidUtil.module.MaintenanceModule;
-import com.github.dozedoff.commonj.file.BinaryFileReader;
-import com.github.dozedoff.commonj.hash.HashMaker;
+import com.github.dozedoff.aidUtil.module.manageLists.ListWriter.ListMode;
+import com.github.dozedoff.aidUtil.util.RunMetrics;
+import com.github.dozedoff.aidUtil.util.StageMetrics;
+import com.github.dozedoff.aidUtil.util.StreamingHasher;
 import com.github.dozedoff.commonj.time.StopWatch;
 
 public class ModuleManageLists extends MaintenanceModule {
+	private static final int WRITE_BATCH_SIZE = 500;
+	private static final int QUEUED_FILES_PER_THREAD = 16;
+	
 	StopWatch stopWatch = new StopWatch();
-	AidDAO sql;
+	ListWriter listWriter;
+	ThreadPoolExecutor hashPool;
 	
-	private int statHashed = 0;
-	private boolean stop = false;
+	private final AtomicInteger statHashed = new AtomicInteger(), statFailed = new AtomicInteger();
+	private volatile boolean stop = false;
+	
+	private final RunMetrics metrics = new RunMetrics("manage_lists");
+	private final StageMetrics hashStage = metrics.stage("hash");
+	private final StageMetrics writeStage = metrics.stage("write");
+	
+	private final ThreadLocal<StreamingHasher> threadHasher = new ThreadLocal<StreamingHasher>() {
+		@Override
+		protected StreamingHasher initialValue() {
+			return new StreamingHasher();
+		}
+	};
+	
+	private static Logger logger = LoggerFactory.getLogger(ModuleManageLists.class);
 	
 	ButtonGroup optionGroup;
 	JRadioButton listDnw = new JRadioButton("DNW"), listBlacklist = new JRadioButton("Blacklist"),
@@ -89,9 +113,8 @@ public class ModuleManageLists extends MaintenanceModule {
 	public void start() {
 		enableAllOptions(false);
 		stop = false;
-		statHashed = 0;
-		
-		sql = new AidDAO(getConnectionPool());
+		statHashed.set(0);
+		statFailed.set(0);
 		
 		File path = new File(getPath());
 		
@@ -100,24 +123,54 @@ public class ModuleManageLists extends MaintenanceModule {
 			return;
 		}
 		
+		ListMode mode = getListMode();
+		
+		if(mode == null){
+			error("Invalid mode");
+			return;
+		}
+		
+		int hashThreads = Settings.getInstance().getFileHasherThreads();
+		listWriter = new ListWriter(getConnectionPool(), mode, WRITE_BATCH_SIZE, writeStage);
+		// when the hashers fall behind, the walker hashes files itself instead of queuing more
+		hashPool = new ThreadPoolExecutor(hashThreads, hashThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(hashThreads * QUEUED_FILES_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+		
+		metrics.start();
 		stopWatch.start();
 		info("Hashing files...");
+		logger.info("Applying mode {} with {} hash threads", mode, hashThreads);
+		
 		try {
 			Files.walkFileTree(path.toPath(), new FileHasher());
 		} catch (IOException e) {
 			error("Directory hashing failed: " + e.getMessage());
 		}
 		
+		waitForHashPool();
+		listWriter.flush();
+		
 		stopWatch.stop();
+		metrics.stop();
 		
 		StringBuilder sb = new StringBuilder();
 		
 		sb.append("Processed ");
-		sb.append(statHashed);
+		sb.append(statHashed.get());
 		sb.append(" files in ");
 		sb.append(stopWatch.getTime());
 		
+		if(statFailed.get() > 0 || listWriter.getFailed() > 0){
+			sb.append(", ");
+			sb.append(statFailed.get());
+			sb.append(" could not be hashed, ");
+			sb.append(listWriter.getFailed());
+			sb.append(" could not be written");
+		}
+		
 		info(sb.toString());
+		info("Throughput: " + metrics.getSummary());
+		logger.info(metrics.toLogLine());
 		enableAllOptions(true);
 	}
 
@@ -132,10 +185,54 @@ public class ModuleManageLists extends MaintenanceModule {
 		}
 	}
 	
-	class FileHasher extends SimpleFileVisitor<Path>{
-		BinaryFileReader bfr = new BinaryFileReader();
-		HashMaker hm = new HashMaker();
+	private ListMode getListMode() {
+		if(listDnw.isSelected()){
+			return ListMode.DNW;
+		}else if(listBlacklist.isSelected()){
+			return ListMode.BLACKLIST;
+		}else if(listUnDnw.isSelected()){
+			return ListMode.UN_DNW;
+		}else if(listUnBlacklist.isSelected()){
+			return ListMode.UN_BLACKLIST;
+		}else{
+			return null;
+		}
+	}
+	
+	private void waitForHashPool() {
+		hashPool.shutdown();
 		
+		try {
+			while(! hashPool.awaitTermination(1, TimeUnit.SECONDS)){
+				if(stop){
+					hashPool.shutdownNow();
+				}
+			}
+		} catch (InterruptedException e) {
+			hashPool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private void hashFile(Path file) {
+		if(stop){
+			return;
+		}
+		
+		try {
+			StreamingHasher hasher = threadHasher.get();
+			long start = System.nanoTime();
+			String hash = hasher.hash(file);
+			hashStage.record(1, hasher.getBytesHashed(), System.nanoTime() - start);
+			statHashed.incrementAndGet();
+			listWriter.add(hash);
+		} catch (IOException e) {
+			statFailed.incrementAndGet();
+			logger.warn("Failed to hash {}", file, e);
+		}
+	}
+	
+	class FileHasher extends SimpleFileVisitor<Path>{
 		@Override
 		public FileVisitResult preVisitDirectory(Path arg0, BasicFileAttributes arg1) throws IOException {
 			if(stop){
@@ -147,28 +244,18 @@ public class ModuleManageLists extends MaintenanceModule {
 		}
 		
 		@Override
-		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)throws IOException {
-				String hash = hm.hash(bfr.getViaDataInputStream(file.toFile()));
-				statHashed++;
-				
-				if(listDnw.isSelected()){
-					sql.update(hash, AidTables.Dnw);
-					sql.delete(AidTables.Block, hash);
-					sql.delete(AidTables.Fileindex, hash);
-					sql.delete(AidTables.Fileduplicate, hash);
-				}else if(listBlacklist.isSelected()){
-					sql.update(hash, AidTables.Block);
-					sql.delete(AidTables.Dnw, hash);
-					sql.delete(AidTables.Fileindex, hash);
-					sql.delete(AidTables.Fileduplicate, hash);
-				}else if(listUnDnw.isSelected()){
-					sql.delete(AidTables.Dnw, hash);
-				}else if(listUnBlacklist.isSelected()){
-					sql.delete(AidTables.Block, hash);
-				}else{
-					error("Invalid mode");
-					return FileVisitResult.TERMINATE;
+		public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs)throws IOException {
+			if(stop){
+				return FileVisitResult.TERMINATE;
+			}
+			
+			hashPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					hashFile(file);
 				}
+			});
+			
 			return super.visitFile(file, attrs);
 		}
 	}
@@ -0,0 +1,99 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter for 128 bit hash keys. Since the keys are taken from a
+ * cryptographic hash, the bit positions are derived from the key itself.
+ * Keys can be added and checked from multiple threads, a check running at
+ * the same time as the add of the same key may miss it.
+ */
+public class BloomFilter {
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashFunctions;
+
+	/**
+	 * @param expectedInsertions number of keys that will be added
+	 * @param falsePositiveRate wanted probability of {@link #mightContain(long, long)} returning true for an absent key
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		if(falsePositiveRate <= 0 || falsePositiveRate >= 1){
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+		}
+
+		long n = Math.max(expectedInsertions, 1);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		m = Math.max(64, Math.min(m, 64L * Integer.MAX_VALUE));
+
+		this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+		this.bitCount = bits.length() * 64L;
+		this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+	}
+
+	public void put(String hash) {
+		put(HashKeys.high(hash), HashKeys.low(hash));
+	}
+
+	public void put(long high, long low) {
+		long combined = high;
+
+		for(int i = 0; i < hashFunctions; i++){
+			long bit = (combined & Long.MAX_VALUE) % bitCount;
+			setBit((int) (bit >>> 6), 1L << bit);
+			combined += low;
+		}
+	}
+
+	public boolean mightContain(String hash) {
+		return mightContain(HashKeys.high(hash), HashKeys.low(hash));
+	}
+
+	/**
+	 * @return false if the key was definitely never added
+	 */
+	public boolean mightContain(long high, long low) {
+		long combined = high;
+
+		for(int i = 0; i < hashFunctions; i++){
+			long bit = (combined & Long.MAX_VALUE) % bitCount;
+
+			if((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0){
+				return false;
+			}
+
+			combined += low;
+		}
+
+		return true;
+	}
+
+	public int getHashFunctions() {
+		return hashFunctions;
+	}
+
+	private void setBit(int word, long mask) {
+		long current = bits.get(word);
+
+		while((current & mask) == 0 && ! bits.compareAndSet(word, current, current | mask)){
+			current = bits.get(word);
+		}
+	}
+}
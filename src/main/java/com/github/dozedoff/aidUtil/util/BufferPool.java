@@ -0,0 +1,113 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool of heap buffers grouped into power of two size classes, so buffers for
+ * files of similar size can be reused instead of allocating a new array per file.
+ * The pool only keeps up to a fixed number of bytes, surplus buffers are left to the GC.
+ */
+public class BufferPool {
+	public static final int MIN_BUFFER_SIZE = 64 * 1024;
+	private static final int MIN_SIZE_CLASS = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+
+	private final ArrayDeque<ByteBuffer>[] pool;
+	private final long maxRetained;
+	private long retained = 0;
+
+	@SuppressWarnings("unchecked")
+	public BufferPool(long maxRetained) {
+		this.maxRetained = maxRetained;
+		this.pool = new ArrayDeque[32 - MIN_SIZE_CLASS];
+
+		for(int i = 0; i < pool.length; i++){
+			pool[i] = new ArrayDeque<>();
+		}
+	}
+
+	/**
+	 * Get a cleared buffer with at least the requested capacity. The limit is set to
+	 * the requested size.
+	 */
+	public ByteBuffer acquire(int size) {
+		if(size < 0){
+			throw new IllegalArgumentException("Size must not be negative");
+		}
+
+		int sizeClass = sizeClass(size);
+		ByteBuffer buffer;
+
+		synchronized(this){
+			buffer = pool[sizeClass].poll();
+
+			if(buffer != null){
+				retained -= buffer.capacity();
+			}
+		}
+
+		if(buffer == null){
+			buffer = ByteBuffer.allocate(classCapacity(sizeClass));
+		}
+
+		buffer.clear();
+		buffer.limit(size);
+		return buffer;
+	}
+
+	/**
+	 * Capacity of the buffer {@link #acquire(int)} returns for the given size.
+	 */
+	public int capacityFor(int size) {
+		return classCapacity(sizeClass(size));
+	}
+
+	/**
+	 * Return a buffer to the pool. Only buffers obtained from {@link #acquire(int)} should be returned.
+	 */
+	public synchronized void release(ByteBuffer buffer) {
+		if(buffer == null || retained + buffer.capacity() > maxRetained){
+			return;
+		}
+
+		pool[sizeClass(buffer.capacity())].push(buffer);
+		retained += buffer.capacity();
+	}
+
+	/**
+	 * Number of bytes held by pooled buffers.
+	 */
+	public synchronized long getRetained() {
+		return retained;
+	}
+
+	private int sizeClass(int size) {
+		if(size <= MIN_BUFFER_SIZE){
+			return 0;
+		}
+
+		return (32 - Integer.numberOfLeadingZeros(size - 1)) - MIN_SIZE_CLASS;
+	}
+
+	private int classCapacity(int sizeClass) {
+		long capacity = 1L << (sizeClass + MIN_SIZE_CLASS);
+		return (int) Math.min(capacity, Integer.MAX_VALUE - 8);
+	}
+}
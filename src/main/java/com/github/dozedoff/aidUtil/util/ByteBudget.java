@@ -0,0 +1,101 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of bytes in flight between two stages.
+ * A request larger than the whole budget is granted when nothing else is in flight,
+ * so single large files can still pass.
+ */
+public class ByteBudget {
+	private final long capacity;
+	private long used = 0;
+	
+	public ByteBudget(long capacity) {
+		if(capacity <= 0){
+			throw new IllegalArgumentException("Capacity must be greater than 0");
+		}
+		
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Block until the bytes fit into the budget.
+	 */
+	public synchronized void acquire(long bytes) throws InterruptedException {
+		while(used > 0 && used + bytes > capacity){
+			wait();
+		}
+		
+		used += bytes;
+	}
+	
+	/**
+	 * Wait up to the timeout for the bytes to fit into the budget.
+	 * @return true if the bytes were acquired
+	 */
+	public synchronized boolean tryAcquire(long bytes, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		
+		while(used > 0 && used + bytes > capacity){
+			long remaining = deadline - System.nanoTime();
+			
+			if(remaining <= 0){
+				return false;
+			}
+			
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		
+		used += bytes;
+		return true;
+	}
+	
+	/**
+	 * Take the bytes if they fit into the budget without blocking.
+	 * @return true if the bytes were acquired
+	 */
+	public synchronized boolean tryAcquire(long bytes) {
+		if(used > 0 && used + bytes > capacity){
+			return false;
+		}
+		
+		used += bytes;
+		return true;
+	}
+	
+	public synchronized void release(long bytes) {
+		used -= bytes;
+		
+		if(used < 0){
+			used = 0;
+		}
+		
+		notifyAll();
+	}
+	
+	public synchronized long getUsed() {
+		return used;
+	}
+	
+	public long getCapacity() {
+		return capacity;
+	}
+}
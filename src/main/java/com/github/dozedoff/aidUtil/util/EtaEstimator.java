@@ -0,0 +1,138 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the time remaining from the amount of work done, e.g. bytes hashed.
+ * The rate is smoothed with an exponentially weighted moving average.
+ * The estimator is updated by the caller, it does not need a thread of its own.
+ */
+public class EtaEstimator {
+	public static final double DEFAULT_SMOOTHING = 0.3;
+	public static final long DEFAULT_SAMPLE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+	public static final String UNKNOWN = "--:--:--";
+
+	private final double smoothing;
+	private final long sampleInterval;
+
+	private long lastCompleted, lastTime;
+	private long completed, total;
+	private double rate; // units per second
+	private boolean started = false, rateKnown = false;
+
+	public EtaEstimator() {
+		this(DEFAULT_SMOOTHING, DEFAULT_SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * @param smoothing weight of the newest sample, between 0 and 1
+	 * @param sampleInterval minimum time between two rate samples in nanoseconds,
+	 *            updates in between only change the remaining work
+	 */
+	public EtaEstimator(double smoothing, long sampleInterval) {
+		if(smoothing <= 0 || smoothing > 1){
+			throw new IllegalArgumentException("Smoothing must be greater than 0 and at most 1");
+		}
+
+		this.smoothing = smoothing;
+		this.sampleInterval = sampleInterval;
+	}
+
+	public synchronized void reset() {
+		started = false;
+		rateKnown = false;
+		rate = 0;
+		completed = 0;
+		total = 0;
+	}
+
+	public void update(long completed, long total) {
+		update(completed, total, System.nanoTime());
+	}
+
+	/**
+	 * @param completed work done so far
+	 * @param total all work known so far, may grow while work is being done
+	 * @param nanoTime current time as returned by {@link System#nanoTime()}
+	 */
+	public synchronized void update(long completed, long total, long nanoTime) {
+		this.completed = completed;
+		this.total = total;
+
+		if(! started){
+			started = true;
+			lastCompleted = completed;
+			lastTime = nanoTime;
+			return;
+		}
+
+		long elapsed = nanoTime - lastTime;
+
+		if(elapsed < sampleInterval){
+			return;
+		}
+
+		double sample = (completed - lastCompleted) / (elapsed / 1e9);
+
+		if(rateKnown){
+			rate = smoothing * sample + (1 - smoothing) * rate;
+		}else{
+			rate = sample;
+			rateKnown = true;
+		}
+
+		lastCompleted = completed;
+		lastTime = nanoTime;
+	}
+
+	/**
+	 * @return the smoothed rate in units per second
+	 */
+	public synchronized double getRate() {
+		return rate;
+	}
+
+	/**
+	 * @return the estimated time remaining in seconds, or -1 if it can't be estimated yet
+	 */
+	public synchronized long getRemainingSeconds() {
+		if(! rateKnown || rate <= 0){
+			return -1;
+		}
+
+		return (long) Math.ceil(Math.max(total - completed, 0) / rate);
+	}
+
+	/**
+	 * @return the time remaining as hours:minutes:seconds, or {@link #UNKNOWN}
+	 */
+	public String getRemaining() {
+		long seconds = getRemainingSeconds();
+
+		if(seconds < 0){
+			return UNKNOWN;
+		}
+
+		long hours = seconds / (60 * 60);
+		long minutes = (seconds / 60) % 60;
+
+		return String.format("%1$02d:%2$02d:%3$02d", hours, minutes, seconds % 60);
+	}
+}
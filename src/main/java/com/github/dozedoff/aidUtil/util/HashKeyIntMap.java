@@ -0,0 +1,123 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+/**
+ * Map from 128 bit hash keys to int values using open addressing, so no objects
+ * are allocated per entry. Not thread safe.
+ */
+public class HashKeyIntMap {
+	public static final int NO_VALUE = -1;
+
+	private static final int MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] keys; // high and low part of each key are stored next to each other
+	private int[] values;
+	private boolean[] used;
+	private int mask;
+	private int size = 0;
+
+	public HashKeyIntMap() {
+		this(MIN_CAPACITY);
+	}
+
+	public HashKeyIntMap(int expectedSize) {
+		allocate(tableSize(expectedSize));
+	}
+
+	/**
+	 * @return the value for the key, or {@link #NO_VALUE} if there is none
+	 */
+	public int get(long high, long low) {
+		int slot = find(high, low);
+		return used[slot] ? values[slot] : NO_VALUE;
+	}
+
+	/**
+	 * @return the previous value for the key, or {@link #NO_VALUE} if there was none
+	 */
+	public int put(long high, long low, int value) {
+		if(size + 1 > (mask + 1) * LOAD_FACTOR){
+			rehash((mask + 1) * 2);
+		}
+
+		int slot = find(high, low);
+
+		if(used[slot]){
+			int previous = values[slot];
+			values[slot] = value;
+			return previous;
+		}
+
+		insert(slot, high, low, value);
+		return NO_VALUE;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the slot holding the key, or the empty slot where it would go.
+	 */
+	private int find(long high, long low) {
+		int slot = (int) HashKeys.mix(high, low) & mask;
+
+		while(used[slot] && ! (keys[slot * 2] == high && keys[slot * 2 + 1] == low)){
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void insert(int slot, long high, long low, int value) {
+		keys[slot * 2] = high;
+		keys[slot * 2 + 1] = low;
+		values[slot] = value;
+		used[slot] = true;
+		size++;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+
+		allocate(capacity);
+
+		for(int i = 0; i < oldUsed.length; i++){
+			if(oldUsed[i]){
+				insert(find(oldKeys[i * 2], oldKeys[i * 2 + 1]), oldKeys[i * 2], oldKeys[i * 2 + 1], oldValues[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity * 2];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private static int tableSize(int expectedSize) {
+		int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+	}
+}
@@ -0,0 +1,160 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of 128 bit hash keys using open addressing, so no objects are allocated per entry.
+ * Reads are safe from multiple threads once the set is no longer modified.
+ */
+public class HashKeySet {
+	private static final int MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] keys; // high and low part of each key are stored next to each other
+	private boolean[] used;
+	private int mask;
+	private int size = 0;
+
+	public HashKeySet() {
+		this(MIN_CAPACITY);
+	}
+
+	public HashKeySet(int expectedSize) {
+		allocate(tableSize(expectedSize));
+	}
+
+	/**
+	 * @return true if the key was not in the set
+	 */
+	public boolean add(String hash) {
+		return add(HashKeys.high(hash), HashKeys.low(hash));
+	}
+
+	public boolean add(long high, long low) {
+		if(size + 1 > (mask + 1) * LOAD_FACTOR){
+			rehash((mask + 1) * 2);
+		}
+
+		int slot = find(high, low);
+
+		if(used[slot]){
+			return false;
+		}
+
+		insert(slot, high, low);
+		return true;
+	}
+
+	public boolean contains(String hash) {
+		return contains(HashKeys.high(hash), HashKeys.low(hash));
+	}
+
+	public boolean contains(long high, long low) {
+		return used[find(high, low)];
+	}
+
+	/**
+	 * @return true if the key was in the set
+	 */
+	public boolean remove(String hash) {
+		return remove(HashKeys.high(hash), HashKeys.low(hash));
+	}
+
+	public boolean remove(long high, long low) {
+		int gap = find(high, low);
+
+		if(! used[gap]){
+			return false;
+		}
+
+		// move following keys into the gap, unless that would put them before their home slot
+		int slot = (gap + 1) & mask;
+
+		while(used[slot]){
+			int home = (int) HashKeys.mix(keys[slot * 2], keys[slot * 2 + 1]) & mask;
+
+			if(((slot - home) & mask) >= ((slot - gap) & mask)){
+				keys[gap * 2] = keys[slot * 2];
+				keys[gap * 2 + 1] = keys[slot * 2 + 1];
+				gap = slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		used[gap] = false;
+		size--;
+		return true;
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the slot holding the key, or the empty slot where it would go.
+	 */
+	private int find(long high, long low) {
+		int slot = (int) HashKeys.mix(high, low) & mask;
+
+		while(used[slot] && ! (keys[slot * 2] == high && keys[slot * 2 + 1] == low)){
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void insert(int slot, long high, long low) {
+		keys[slot * 2] = high;
+		keys[slot * 2 + 1] = low;
+		used[slot] = true;
+		size++;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		boolean[] oldUsed = used;
+
+		allocate(capacity);
+
+		for(int i = 0; i < oldUsed.length; i++){
+			if(oldUsed[i]){
+				insert(find(oldKeys[i * 2], oldKeys[i * 2 + 1]), oldKeys[i * 2], oldKeys[i * 2 + 1]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity * 2];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private static int tableSize(int expectedSize) {
+		int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+	}
+}
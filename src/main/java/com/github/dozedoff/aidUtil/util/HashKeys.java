@@ -0,0 +1,73 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+/**
+ * Converts hex hash strings into compact 128 bit keys, stored as two longs.
+ * The key is taken from the first 32 hex digits (16 bytes) of the hash.
+ * Shorter hashes use all of their digits.
+ */
+public final class HashKeys {
+	public static final int KEY_DIGITS = 32;
+	private static final int HALF_DIGITS = KEY_DIGITS / 2;
+
+	private HashKeys() {
+	}
+
+	/**
+	 * The first 8 bytes of the key.
+	 */
+	public static long high(CharSequence hash) {
+		return parse(hash, 0);
+	}
+
+	/**
+	 * The second 8 bytes of the key.
+	 */
+	public static long low(CharSequence hash) {
+		return parse(hash, HALF_DIGITS);
+	}
+
+	/**
+	 * Spread the key bits into a hash code for table lookups.
+	 */
+	public static long mix(long high, long low) {
+		long h = high * 0x9E3779B97F4A7C15L + low;
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		h ^= h >>> 32;
+		return h;
+	}
+
+	private static long parse(CharSequence hash, int offset) {
+		long value = 0;
+		int end = Math.min(hash.length(), offset + HALF_DIGITS);
+
+		for(int i = offset; i < end; i++){
+			int digit = Character.digit(hash.charAt(i), 16);
+
+			if(digit < 0){
+				throw new IllegalArgumentException("Not a hex hash: " + hash);
+			}
+
+			value = (value << 4) | digit;
+		}
+
+		return value;
+	}
+}
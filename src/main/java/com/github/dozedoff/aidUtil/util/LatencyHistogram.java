@@ -0,0 +1,93 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with power of two buckets in microseconds.
+ * Percentiles are reported as the upper bound of the bucket they fall into,
+ * so they are accurate to a factor of two.
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS = 40; // the last bucket holds everything above ~6 days
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final StripedCounter count = new StripedCounter();
+	private final StripedCounter totalNanos = new StripedCounter();
+
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+		buckets.incrementAndGet(bucket);
+		count.increment();
+		totalNanos.add(nanos);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the mean latency in nanoseconds, or 0 if nothing was recorded
+	 */
+	public long getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : totalNanos.sum() / n;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return upper bound in nanoseconds for the given percentile, or 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+
+		for(int i = 0; i < BUCKETS; i++){
+			total += buckets.get(i);
+		}
+
+		if(total == 0){
+			return 0;
+		}
+
+		long threshold = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+		long seen = 0;
+
+		for(int i = 0; i < BUCKETS; i++){
+			seen += buckets.get(i);
+
+			if(seen >= threshold && seen > 0){
+				return TimeUnit.MICROSECONDS.toNanos(1L << i);
+			}
+		}
+
+		return TimeUnit.MICROSECONDS.toNanos(1L << (BUCKETS - 1));
+	}
+
+	public void reset() {
+		for(int i = 0; i < BUCKETS; i++){
+			buckets.set(i, 0);
+		}
+
+		count.reset();
+		totalNanos.reset();
+	}
+}
@@ -0,0 +1,198 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import io.AidTables;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+/**
+ * Moves hashes between the DNW list and the blacklist. Every call runs in a single
+ * transaction, either all hashes are moved or none. Statements are multi-row,
+ * large collections are split into chunks within the same transaction.
+ */
+public class ListService {
+	public static final int MAX_HASHES_PER_STATEMENT = 1000;
+	
+	private static final String[] INDEX_TABLES = {"fileindex", "fileduplicate"};
+	
+	private final ConnectionPool connPool;
+	
+	private static Logger logger = LoggerFactory.getLogger(ListService.class);
+	
+	public ListService(ConnectionPool connPool) {
+		this.connPool = connPool;
+	}
+	
+	/**
+	 * Add the hashes to the target list and remove them from the other list and the index.
+	 * 
+	 * @param target either {@link AidTables#Dnw} or {@link AidTables#Block}
+	 * @return number of hashes that were moved
+	 * @throws SQLException if the transaction failed, nothing was changed
+	 */
+	public int moveToList(Collection<String> hashes, AidTables target) throws SQLException {
+		return execute(hashes, target, false);
+	}
+	
+	/**
+	 * Remove the hashes from the list.
+	 * 
+	 * @param list either {@link AidTables#Dnw} or {@link AidTables#Block}
+	 * @return number of hashes that were processed
+	 * @throws SQLException if the transaction failed, nothing was changed
+	 */
+	public int removeFromList(Collection<String> hashes, AidTables list) throws SQLException {
+		return execute(hashes, list, true);
+	}
+	
+	/**
+	 * Build the statements for one chunk. Every statement takes the hashes of
+	 * the chunk as parameters, in order.
+	 * 
+	 * @param list either {@link AidTables#Dnw} or {@link AidTables#Block}
+	 * @param remove true to only remove the hashes from the list
+	 * @param count number of hashes in the chunk
+	 */
+	public static List<String> buildStatements(AidTables list, boolean remove, int count) {
+		List<String> statements = new LinkedList<>();
+		
+		if(remove){
+			statements.add(delete(tableName(list), count));
+			return statements;
+		}
+		
+		StringBuilder insert = new StringBuilder("INSERT IGNORE INTO `").append(tableName(list)).append("` (`id`) VALUES ");
+		
+		for(int i = 0; i < count; i++){
+			insert.append(i == 0 ? "(?)" : ",(?)");
+		}
+		
+		statements.add(insert.toString());
+		statements.add(delete(tableName(otherList(list)), count));
+		
+		for(String table : INDEX_TABLES){
+			statements.add(delete(table, count));
+		}
+		
+		return statements;
+	}
+	
+	private int execute(Collection<String> hashes, AidTables list, boolean remove) throws SQLException {
+		if(hashes.isEmpty()){
+			return 0;
+		}
+		
+		List<String> all = new ArrayList<>(hashes);
+		Connection con = null;
+		boolean committed = false;
+		
+		try {
+			con = connPool.getConnection();
+			con.setAutoCommit(false);
+			
+			for(int start = 0; start < all.size(); start += MAX_HASHES_PER_STATEMENT){
+				List<String> chunk = all.subList(start, Math.min(all.size(), start + MAX_HASHES_PER_STATEMENT));
+				
+				for(String query : buildStatements(list, remove, chunk.size())){
+					try (PreparedStatement stmt = con.prepareStatement(query)) {
+						int index = 1;
+						
+						for(String hash : chunk){
+							stmt.setString(index++, hash);
+						}
+						
+						stmt.executeUpdate();
+					}
+				}
+			}
+			
+			con.commit();
+			committed = true;
+		} finally {
+			if(! committed){
+				rollback(con);
+			}
+			
+			close(con);
+		}
+		
+		return all.size();
+	}
+	
+	private static String delete(String table, int count) {
+		StringBuilder delete = new StringBuilder("DELETE FROM `").append(table).append("` WHERE `id` IN (");
+		
+		for(int i = 0; i < count; i++){
+			delete.append(i == 0 ? "?" : ",?");
+		}
+		
+		return delete.append(")").toString();
+	}
+	
+	private static String tableName(AidTables list) {
+		switch (list) {
+		case Dnw:
+			return "dnw";
+		case Block:
+			return "block";
+		default:
+			throw new IllegalArgumentException(list + " is not a list");
+		}
+	}
+	
+	private static AidTables otherList(AidTables list) {
+		return list == AidTables.Dnw ? AidTables.Block : AidTables.Dnw;
+	}
+	
+	private void rollback(Connection con) {
+		if(con == null){
+			return;
+		}
+		
+		try {
+			con.rollback();
+		} catch (SQLException e) {
+			logger.warn("Failed to rollback transaction", e);
+		}
+	}
+	
+	private void close(Connection con) {
+		if(con == null){
+			return;
+		}
+		
+		try {
+			con.setAutoCommit(true);
+			con.close();
+		} catch (SQLException e) {
+			logger.warn("Failed to close database connection", e);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+/**
+ * Set of primitive longs using open addressing, so no objects are allocated per entry.
+ * Reads are safe from multiple threads once the set is no longer modified.
+ */
+public class LongHashSet {
+	private static final int MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.6f;
+	private static final long EMPTY = 0; // the key 0 is tracked separately
+
+	private long[] keys;
+	private int mask;
+	private int size = 0;
+	private boolean containsEmpty = false;
+
+	public LongHashSet() {
+		this(MIN_CAPACITY);
+	}
+
+	public LongHashSet(int expectedSize) {
+		allocate(tableSize(expectedSize));
+	}
+
+	/**
+	 * @return true if the key was not in the set
+	 */
+	public boolean add(long key) {
+		if(key == EMPTY){
+			if(containsEmpty){
+				return false;
+			}
+
+			containsEmpty = true;
+			size++;
+			return true;
+		}
+
+		if(size + 1 > (mask + 1) * LOAD_FACTOR){
+			rehash((mask + 1) * 2);
+		}
+
+		int slot = find(key);
+
+		if(keys[slot] == key){
+			return false;
+		}
+
+		keys[slot] = key;
+		size++;
+		return true;
+	}
+
+	public boolean contains(long key) {
+		if(key == EMPTY){
+			return containsEmpty;
+		}
+
+		return keys[find(key)] == key;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the slot holding the key, or the empty slot where it would go.
+	 */
+	private int find(long key) {
+		int slot = (int) HashKeys.mix(key, 0) & mask;
+
+		while(keys[slot] != EMPTY && keys[slot] != key){
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		allocate(capacity);
+
+		for(long key : oldKeys){
+			if(key != EMPTY){
+				keys[find(key)] = key;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int tableSize(int expectedSize) {
+		int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+	}
+}
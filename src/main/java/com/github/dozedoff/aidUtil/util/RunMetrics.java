@@ -0,0 +1,172 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters and per stage throughput for a module run. Stages and counters are
+ * registered before the run starts, afterwards they can be updated from any thread.
+ */
+public class RunMetrics {
+	private static final double MEGABYTE = 1024 * 1024;
+
+	private final String name;
+	private final Map<String, StageMetrics> stages = new LinkedHashMap<>();
+	private final Map<String, StripedCounter> counters = new LinkedHashMap<>();
+	private volatile long startTime = 0, stopTime = 0;
+
+	public RunMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Register a stage. Registering an existing name returns the existing stage.
+	 */
+	public synchronized StageMetrics stage(String stageName) {
+		StageMetrics stage = stages.get(stageName);
+
+		if(stage == null){
+			stage = new StageMetrics(stageName);
+			stages.put(stageName, stage);
+		}
+
+		return stage;
+	}
+
+	/**
+	 * Register a counter. Registering an existing name returns the existing counter.
+	 */
+	public synchronized StripedCounter counter(String counterName) {
+		StripedCounter counter = counters.get(counterName);
+
+		if(counter == null){
+			counter = new StripedCounter();
+			counters.put(counterName, counter);
+		}
+
+		return counter;
+	}
+
+	/**
+	 * Reset all values and start timing the run.
+	 */
+	public synchronized void start() {
+		for(StageMetrics stage : stages.values()){
+			stage.reset();
+		}
+
+		for(StripedCounter counter : counters.values()){
+			counter.reset();
+		}
+
+		stopTime = 0;
+		startTime = System.nanoTime();
+	}
+
+	public void stop() {
+		stopTime = System.nanoTime();
+	}
+
+	/**
+	 * Time since the run was started, or the duration of the run once it has stopped.
+	 */
+	public long getElapsedNanos() {
+		if(startTime == 0){
+			return 0;
+		}
+
+		return (stopTime == 0 ? System.nanoTime() : stopTime) - startTime;
+	}
+
+	/**
+	 * Short throughput summary for the status bar.
+	 */
+	public synchronized String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		double seconds = seconds();
+
+		for(StageMetrics stage : stages.values()){
+			if(sb.length() > 0){
+				sb.append(", ");
+			}
+
+			sb.append(stage.getName()).append(" ").append(format(stage.getItems().sum() / seconds)).append("/s");
+
+			long bytes = stage.getBytes().sum();
+
+			if(bytes > 0){
+				sb.append(" (").append(format(bytes / MEGABYTE / seconds)).append(" MB/s)");
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * All values as space separated key=value pairs, for log parsers.
+	 * Latencies are in milliseconds.
+	 */
+	public synchronized String toLogLine() {
+		StringBuilder sb = new StringBuilder("metrics run=").append(name);
+		double seconds = seconds();
+
+		append(sb, "elapsed_ms", TimeUnit.NANOSECONDS.toMillis(getElapsedNanos()));
+
+		for(Entry<String, StripedCounter> counter : counters.entrySet()){
+			append(sb, counter.getKey(), counter.getValue().sum());
+		}
+
+		for(StageMetrics stage : stages.values()){
+			String prefix = stage.getName() + ".";
+			long items = stage.getItems().sum();
+			long bytes = stage.getBytes().sum();
+			LatencyHistogram latency = stage.getLatency();
+
+			append(sb, prefix + "count", items);
+			append(sb, prefix + "per_s", format(items / seconds));
+			append(sb, prefix + "bytes", bytes);
+			append(sb, prefix + "mb_s", format(bytes / MEGABYTE / seconds));
+			append(sb, prefix + "mean_ms", millis(latency.getMean()));
+			append(sb, prefix + "p50_ms", millis(latency.getPercentile(50)));
+			append(sb, prefix + "p99_ms", millis(latency.getPercentile(99)));
+		}
+
+		return sb.toString();
+	}
+
+	private double seconds() {
+		return Math.max(getElapsedNanos() / 1e9, 0.001);
+	}
+
+	private void append(StringBuilder sb, String key, Object value) {
+		sb.append(' ').append(key).append('=').append(value);
+	}
+
+	private String millis(long nanos) {
+		return format(nanos / 1e6);
+	}
+
+	private String format(double value) {
+		return String.format(Locale.ROOT, "%.1f", value);
+	}
+}
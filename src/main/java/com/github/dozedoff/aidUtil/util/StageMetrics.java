@@ -0,0 +1,75 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+/**
+ * Work done by one stage of a pipeline, safe to update from many threads.
+ */
+public class StageMetrics {
+	private final String name;
+	private final StripedCounter items = new StripedCounter();
+	private final StripedCounter bytes = new StripedCounter();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	public StageMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Record work done by the stage.
+	 * 
+	 * @param itemCount number of items (files, queries...) processed
+	 * @param byteCount number of bytes processed, 0 if it does not apply
+	 * @param nanos time it took
+	 */
+	public void record(long itemCount, long byteCount, long nanos) {
+		items.add(itemCount);
+		bytes.add(byteCount);
+		latency.record(nanos);
+	}
+
+	/**
+	 * Record work that was done without measuring time.
+	 */
+	public void count(long itemCount, long byteCount) {
+		items.add(itemCount);
+		bytes.add(byteCount);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public StripedCounter getItems() {
+		return items;
+	}
+
+	public StripedCounter getBytes() {
+		return bytes;
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	void reset() {
+		items.reset();
+		bytes.reset();
+		latency.reset();
+	}
+}
@@ -0,0 +1,118 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes files by feeding them through a reusable direct buffer, so the
+ * memory needed per hash does not depend on the file size.
+ * Produces the same hex strings as HashMaker.
+ * Instances are not thread safe, use one per worker thread.
+ */
+public class StreamingHasher {
+	public static final String HASH_ALGORITHM = "SHA-256";
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private final ByteBuffer buffer;
+	private final MessageDigest digest;
+	private long bytesHashed;
+
+	public StreamingHasher() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	public StreamingHasher(int bufferSize) {
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+
+		try {
+			this.digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(HASH_ALGORITHM + " is not supported by this JVM", e);
+		}
+	}
+
+	public String hash(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return hash(channel);
+		}
+	}
+
+	/**
+	 * Hash the stream until EOF is reached. The stream is not closed.
+	 */
+	public String hash(InputStream stream) throws IOException {
+		return hash(Channels.newChannel(stream));
+	}
+
+	public String hash(ReadableByteChannel channel) throws IOException {
+		digest.reset();
+		buffer.clear();
+		bytesHashed = 0;
+
+		while(channel.read(buffer) != -1){
+			buffer.flip();
+			bytesHashed += buffer.remaining();
+			digest.update(buffer);
+			buffer.clear();
+		}
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Hash the remaining bytes of the buffer. The buffer position is moved to the limit.
+	 */
+	public String hash(ByteBuffer data) {
+		digest.reset();
+		bytesHashed = data.remaining();
+		digest.update(data);
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Number of bytes that were read for the last hash.
+	 */
+	public long getBytesHashed() {
+		return bytesHashed;
+	}
+
+	public static String toHex(byte[] data) {
+		char[] hex = new char[data.length * 2];
+
+		for(int i = 0; i < data.length; i++){
+			int value = data[i] & 0xFF;
+			hex[i * 2] = HEX_DIGITS[value >>> 4];
+			hex[i * 2 + 1] = HEX_DIGITS[value & 0x0F];
+		}
+
+		return new String(hex);
+	}
+}
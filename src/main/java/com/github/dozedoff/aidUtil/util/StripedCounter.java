@@ -0,0 +1,72 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter for values updated by many threads. Updates are spread over several
+ * cells, selected by thread, so threads do not contend on a single value.
+ * The sum is only exact when no updates are in progress.
+ */
+public class StripedCounter {
+	private static final int PADDING = 8; // 8 longs, keeps every cell on its own cache line
+
+	private final AtomicLongArray cells;
+	private final int mask;
+
+	public StripedCounter() {
+		int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+		this.cells = new AtomicLongArray(stripes * PADDING);
+		this.mask = stripes - 1;
+	}
+
+	public void increment() {
+		add(1);
+	}
+
+	public void add(long value) {
+		cells.getAndAdd(cell(), value);
+	}
+
+	public long sum() {
+		long sum = 0;
+
+		for(int i = 0; i < cells.length(); i += PADDING){
+			sum += cells.get(i);
+		}
+
+		return sum;
+	}
+
+	public void reset() {
+		for(int i = 0; i < cells.length(); i += PADDING){
+			cells.set(i, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+
+	private int cell() {
+		long id = Thread.currentThread().getId();
+		return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40 & mask) * PADDING;
+	}
+}
@@ -23,10 +23,16 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import com.github.dozedoff.aidUtil.archiveIndexer.ArchiveIndexerTestSuit;
 import com.github.dozedoff.aidUtil.duplicateViewer.DuplicateViewerTestSuit;
+import com.github.dozedoff.aidUtil.manageFiles.ManageFilesTestSuit;
+import com.github.dozedoff.aidUtil.manageLists.ManageListsTestSuit;
+import com.github.dozedoff.aidUtil.util.UtilTestSuit;
 
 @RunWith(Suite.class)
 @SuiteClasses({
 	ArchiveIndexerTestSuit.class,
-	DuplicateViewerTestSuit.class
+	DuplicateViewerTestSuit.class,
+	ManageFilesTestSuit.class,
+	ManageListsTestSuit.class,
+	UtilTestSuit.class
 })
 public class AllAidUtilTests {}
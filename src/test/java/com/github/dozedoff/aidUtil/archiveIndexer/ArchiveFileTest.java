@@ -0,0 +1,79 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.archiveIndexer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.archiveIndexer.ArchiveFile;
+import com.github.dozedoff.commonj.file.FileInfo;
+
+public class ArchiveFileTest {
+	ArchiveFile archiveFile;
+	Path archive, file;
+	
+	@Before
+	public void setUp() throws Exception {
+		archive = Paths.get("archive.zip");
+		file = Paths.get("foo", "bar.png");
+		archiveFile = createArchiveFile(archive, file);
+	}
+	
+	private ArchiveFile createArchiveFile(Path archivePath, Path filePath) {
+		return new ArchiveFile(new FileInfo(filePath), archivePath);
+	}
+
+	@Test
+	public void testEqualsDifferentInstances() {
+		ArchiveFile other = createArchiveFile(Paths.get("archive.zip"), Paths.get("foo", "bar.png"));
+		
+		assertThat(archiveFile.equals(other), is(true));
+		assertThat(archiveFile.hashCode(), is(other.hashCode()));
+	}
+	
+	@Test
+	public void testNotEqualsDifferentArchive() {
+		assertThat(archiveFile, is(not(createArchiveFile(Paths.get("other.zip"), file))));
+	}
+	
+	@Test
+	public void testNotEqualsDifferentPath() {
+		assertThat(archiveFile, is(not(createArchiveFile(archive, Paths.get("bar.png")))));
+	}
+	
+	@Test
+	public void testNullArchive() {
+		assertThat(createArchiveFile(null, file), is(createArchiveFile(null, file)));
+	}
+	
+	@Test
+	public void testHashSet() {
+		HashSet<ArchiveFile> set = new HashSet<>();
+		set.add(archiveFile);
+		
+		assertThat(set.contains(createArchiveFile(archive, file)), is(true));
+	}
+}
@@ -23,12 +23,17 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+	ArchiveFileTest.class,
 	ArchiveFinderTest.class,
 	ArchiveUnpackerTest.class,
 	DatabaseHandlerTest.class, 
+	DatabaseWorkerTest.class,
+	DuplicateFilterTest.class,
 	FileDeleterTest.class, 
 	FileHasherTest.class,
-	PathRewriterTest.class
+	ImageFinderTest.class,
+	PathRewriterTest.class,
+	ZipArchiveReaderTest.class
 })
 public class ArchiveIndexerTestSuit {
 
@@ -17,12 +17,17 @@
  */
 package com.github.dozedoff.aidUtil.archiveIndexer;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
 import java.io.File;
 import java.net.MalformedURLException;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.dbunit.Assertion;
 import org.dbunit.DatabaseTestCase;
@@ -103,10 +108,40 @@ public class DatabaseHandlerTest extends DatabaseTestCase{
 		Assertion.assertEquals(getCompositeFileTable(DUPLICATE_TABLE, indexAddArchiveExistingArchiveData_PATH), getDatabaseTable(DUPLICATE_TABLE));
 	}
 	
+	@Test
+	public void testAddDnwBatch() throws Exception {
+		FileInfo fi = new FileInfo(new File(""), "1");
+		List<FileInfo> failed = dbh.addDnw(Arrays.asList(fi));
+		
+		assertThat(failed.isEmpty(), is(true));
+		Assertion.assertEquals(getCompositeFileTable(DNW_TABLE, DataBaseHandler_PATH, dnwAddData_PATH), getDatabaseTable(DNW_TABLE));
+	}
+	
+	@Test
+	public void testAddIndexBatchNewArchiveEntry() throws Exception {
+		List<FileInfo> failed = dbh.addIndex(Arrays.asList(createIndexEntry("5")));
+		
+		assertThat(failed.isEmpty(), is(true));
+		Assertion.assertEquals(getCompositeFileTable(INDEX_TABLE, DataBaseHandler_PATH, indexAddArchiveData_PATH), getDatabaseTable(INDEX_TABLE));
+	}
+	
+	@Test
+	public void testAddIndexBatchExistingEntryFails() throws Exception {
+		FileInfo existing = createIndexEntry("4");
+		List<FileInfo> failed = dbh.addIndex(Arrays.asList(createIndexEntry("5"), existing));
+		
+		assertThat(failed.size(), is(1));
+		assertThat(failed.get(0), is(existing));
+	}
+	
 	private void addIndex(String id){
+		dbh.addIndex(createIndexEntry(id));
+	}
+	
+	private FileInfo createIndexEntry(String id){
 		FileInfo fi = new FileInfo(Paths.get("X:\\foo\\bar\\foo.png"), id);
 		fi.setSize(23452345);
-		dbh.addIndex(fi);
+		return fi;
 	}
 
 	// ---------- Database Setup related methods ---------- //
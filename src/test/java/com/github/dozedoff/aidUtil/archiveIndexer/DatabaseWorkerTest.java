@@ -0,0 +1,98 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.archiveIndexer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.archiveIndexer.ArchiveFile;
+import com.github.dozedoff.aidUtil.module.archiveIndexer.DatabaseHandler;
+import com.github.dozedoff.aidUtil.module.archiveIndexer.DatabaseWorker;
+import com.github.dozedoff.aidUtil.module.archiveIndexer.DatabaseWorker.OperationMode;
+import com.github.dozedoff.commonj.file.FileInfo;
+
+public class DatabaseWorkerTest {
+	DatabaseHandler dbHandler;
+	LinkedBlockingQueue<ArchiveFile> outputQueue;
+	ArchiveFile file;
+	
+	@Before
+	public void setUp() throws Exception {
+		dbHandler = mock(DatabaseHandler.class);
+		outputQueue = new LinkedBlockingQueue<>();
+		file = new ArchiveFile(new FileInfo(Paths.get("foo", "bar.jpg"), "ABCD"), Paths.get("foo.zip"));
+		
+		List<FileInfo> failed = new LinkedList<>();
+		failed.add(file);
+		when(dbHandler.addDnw(anyListOf(ArchiveFile.class))).thenReturn(failed);
+		when(dbHandler.addIndex(anyListOf(ArchiveFile.class))).thenReturn(failed);
+		
+		outputQueue.add(file);
+		outputQueue.add(DatabaseWorker.END_OF_STREAM);
+	}
+
+	@Test
+	public void testDnwRetrySucceeds() {
+		when(dbHandler.addDnw(any(FileInfo.class))).thenReturn(true);
+		
+		assertThat(runWorker(OperationMode.AddToDNW).isEmpty(), is(true));
+	}
+	
+	@Test
+	public void testDnwRetryFails() {
+		when(dbHandler.addDnw(any(FileInfo.class))).thenReturn(false);
+		
+		List<FileInfo> deadLetters = runWorker(OperationMode.AddToDNW);
+		
+		assertThat(deadLetters.size(), is(1));
+		assertThat(deadLetters.get(0), is((FileInfo) file));
+	}
+	
+	@Test
+	public void testDnwRetryThrows() {
+		when(dbHandler.addDnw(any(FileInfo.class))).thenThrow(new RuntimeException("connection lost"));
+		
+		assertThat(runWorker(OperationMode.AddToDNW).size(), is(1));
+	}
+	
+	@Test
+	public void testIndexRetryFails() {
+		when(dbHandler.addIndex(any(FileInfo.class))).thenReturn(false);
+		
+		assertThat(runWorker(OperationMode.AddToIndex).size(), is(1));
+	}
+	
+	private List<FileInfo> runWorker(OperationMode mode) {
+		DatabaseWorker worker = new DatabaseWorker(dbHandler, outputQueue, mode, 10, 10);
+		worker.run();
+		
+		return worker.getDeadLetters();
+	}
+}
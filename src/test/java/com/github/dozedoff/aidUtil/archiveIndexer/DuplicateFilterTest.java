@@ -0,0 +1,86 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.archiveIndexer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.archiveIndexer.DuplicateFilter;
+
+public class DuplicateFilterTest {
+	DuplicateFilter filter;
+	Path archiveA, archiveB, entry;
+	
+	@Before
+	public void setUp() throws Exception {
+		filter = new DuplicateFilter();
+		archiveA = Paths.get("archiveA.zip");
+		archiveB = Paths.get("archiveB.zip");
+		entry = Paths.get("foo", "bar.png");
+	}
+
+	@Test
+	public void testNewEntry() {
+		assertThat(filter.add(archiveA, entry), is(true));
+	}
+	
+	@Test
+	public void testDuplicateEntry() {
+		filter.add(archiveA, entry);
+		assertThat(filter.add(archiveA, Paths.get("foo", "bar.png")), is(false));
+	}
+	
+	@Test
+	public void testSameEntryOtherArchive() {
+		filter.add(archiveA, entry);
+		assertThat(filter.add(archiveB, entry), is(true));
+	}
+	
+	@Test
+	public void testSuppressedCount() {
+		filter.add(archiveA, entry);
+		filter.add(archiveA, entry);
+		filter.add(archiveA, entry);
+		
+		assertThat(filter.getSuppressed(), is(2));
+	}
+	
+	@Test
+	public void testRelease() {
+		filter.add(archiveA, entry);
+		filter.release(archiveA);
+		
+		assertThat(filter.add(archiveA, entry), is(true));
+	}
+	
+	@Test
+	public void testClear() {
+		filter.add(archiveA, entry);
+		filter.add(archiveA, entry);
+		filter.clear();
+		
+		assertThat(filter.getSuppressed(), is(0));
+		assertThat(filter.add(archiveA, entry), is(true));
+	}
+}
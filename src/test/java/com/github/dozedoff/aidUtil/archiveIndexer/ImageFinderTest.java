@@ -0,0 +1,69 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.archiveIndexer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.matchers.JUnitMatchers.hasItems;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.archiveIndexer.ImageFinder;
+
+public class ImageFinderTest {
+	Path tempDir;
+	LinkedList<Path> images = new LinkedList<>();
+	
+	@Before
+	public void setUp() throws Exception {
+		tempDir = Files.createTempDirectory("ImageFinderTest");
+		images.add(Files.createFile(tempDir.resolve("cat.jpg")));
+		Files.createFile(tempDir.resolve("test.txt"));
+		Path subdir = Files.createDirectories(tempDir.resolve("sub1.png"));
+		images.add(Files.createFile(subdir.resolve("dog.PNG")));
+		images.add(Files.createFile(subdir.resolve("bird.jpeg")));
+		Files.createFile(subdir.resolve("bar.7z"));
+	}
+
+	@Test
+	public void testFind() throws IOException {
+		LinkedList<Path> found = ImageFinder.find(tempDir);
+		
+		assertThat(found.size(), is(3));
+		assertThat(found, hasItems(images.toArray(new Path[0])));
+	}
+	
+	@Test
+	public void testIsImage() {
+		assertThat(ImageFinder.isImage("foo/bar.GIF"), is(true));
+		assertThat(ImageFinder.isImage("foo/bar.gif.txt"), is(false));
+	}
+	
+	@Test(expected=NoSuchFileException.class)
+	public void testInvalidPath() throws IOException {
+		ImageFinder.find(Paths.get("non-existant"));
+	}
+}
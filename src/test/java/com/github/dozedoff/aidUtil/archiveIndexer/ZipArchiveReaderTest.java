@@ -0,0 +1,151 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.archiveIndexer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.archiveIndexer.ArchiveFile;
+import com.github.dozedoff.aidUtil.module.archiveIndexer.ZipArchiveReader;
+import com.github.dozedoff.aidUtil.util.ByteBudget;
+
+public class ZipArchiveReaderTest {
+	static byte[] testData;
+	Path zipFile;
+	ZipArchiveReader reader;
+	
+	final String expectedTestHash = "4120B987CF940DAC04632C27FDC072479FD519016D1085DE1CC2A4980D3041BF";
+	
+	@BeforeClass
+	public static void before() throws Exception {
+		testData = Files.readAllBytes(Paths.get(ArchiveUnpackerTest.class.getResource("test.7z").toURI()));
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		zipFile = Files.createTempFile("ZipArchiveReaderTest", ".zip");
+		reader = new ZipArchiveReader();
+		createZip();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(zipFile);
+	}
+	
+	private void createZip() throws IOException {
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+			zos.putNextEntry(new ZipEntry("foo/"));
+			zos.closeEntry();
+			addEntry(zos, "foo/bar.png");
+			addEntry(zos, "readme.txt");
+			addEntry(zos, "top.JPG");
+		}
+	}
+	
+	private void addEntry(ZipOutputStream zos, String name) throws IOException {
+		zos.putNextEntry(new ZipEntry(name));
+		zos.write(testData);
+		zos.closeEntry();
+	}
+
+	@Test
+	public void testCanRead() {
+		assertThat(reader.canRead(zipFile), is(true));
+		assertThat(reader.canRead(Paths.get("foo.7z")), is(false));
+	}
+	
+	@Test
+	public void testOnlyImagesRead() throws Exception {
+		assertThat(reader.read(zipFile).size(), is(2));
+	}
+	
+	@Test
+	public void testEntryPath() throws Exception {
+		List<ArchiveFile> files = reader.read(zipFile);
+		
+		assertThat(files.get(0).getFilePath(), is(zipFile.resolve("foo").resolve("bar.png")));
+		assertThat(files.get(0).getArchivePath(), is(zipFile));
+	}
+	
+	@Test
+	public void testHashAndSize() throws Exception {
+		ArchiveFile file = reader.read(zipFile).get(1);
+		
+		assertThat(file.getHash(), is(expectedTestHash));
+		assertThat(file.getSize(), is(150L));
+	}
+	
+	@Test
+	public void testHashOnPool() throws Exception {
+		ExecutorService hashPool = Executors.newFixedThreadPool(2);
+		ByteBudget budget = new ByteBudget(200);
+		
+		try {
+			List<ArchiveFile> files = new ZipArchiveReader(hashPool, budget).read(zipFile);
+			
+			assertThat(files.size(), is(2));
+			assertThat(files.get(0).getFilePath(), is(zipFile.resolve("foo").resolve("bar.png")));
+			assertThat(files.get(1).getHash(), is(expectedTestHash));
+			assertThat(budget.getUsed(), is(0L));
+		} finally {
+			hashPool.shutdownNow();
+		}
+	}
+	
+	@Test(expected=ZipException.class)
+	public void testEntryNameNotUtf8() throws Exception {
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile), Charset.forName("Shift_JIS"))) {
+			addEntry(zos, "\u753b\u50cf.png");
+		}
+		
+		reader.read(zipFile);
+	}
+	
+	@Test
+	public void testJpegExtension() throws Exception {
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+			addEntry(zos, "photo.jpeg");
+		}
+		
+		assertThat(reader.read(zipFile).size(), is(1));
+	}
+	
+	@Test(expected=ZipException.class)
+	public void testInvalidArchive() throws Exception {
+		Files.write(zipFile, testData);
+		reader.read(zipFile);
+	}
+}
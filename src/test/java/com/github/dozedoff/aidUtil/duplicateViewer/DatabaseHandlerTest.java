@@ -18,6 +18,7 @@
 package com.github.dozedoff.aidUtil.duplicateViewer;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.matchers.JUnitMatchers.hasItem;
 
@@ -44,6 +45,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.github.dozedoff.aidUtil.module.duplicateViewer.DatabaseHandler;
+import com.github.dozedoff.aidUtil.module.duplicateViewer.DuplicatePage;
 import com.github.dozedoff.aidUtil.module.duplicateViewer.Entry;
 import com.github.dozedoff.commonj.io.BoneConnectionPool;
 
@@ -102,6 +104,34 @@ public class DatabaseHandlerTest extends DatabaseTestCase {
 		assertThat(duplicates.size(), is(2));
 	}
 	
+	@Test
+	public void testLoadDuplicatePage() throws Exception {
+		DuplicatePage page = dbHandler.getDuplicatePage("", 10);
+		
+		assertThat(page.getEntries(), hasItem(expectedDuplicate));
+		assertThat(page.getEntries(), hasItem(expectedOriginal));
+		assertThat(page.getEntries().size(), is(2));
+		assertThat(page.getHashCount(), is(1));
+		assertThat(page.getLastHash(), is("40"));
+	}
+	
+	@Test
+	public void testLoadDuplicatePageAfterLastHash() throws Exception {
+		DuplicatePage page = dbHandler.getDuplicatePage("40", 10);
+		
+		assertThat(page.getEntries().isEmpty(), is(true));
+		assertThat(page.getHashCount(), is(0));
+		assertThat(page.getLastHash(), is(nullValue()));
+	}
+	
+	@Test
+	public void testLoadDuplicatePageSkipsEarlierHashes() throws Exception {
+		DuplicatePage page = dbHandler.getDuplicatePage("30", 1);
+		
+		assertThat(page.getHashCount(), is(1));
+		assertThat(page.getLastHash(), is("40"));
+	}
+	
 	// Connection related methods
 	
 	@Override
@@ -198,6 +198,15 @@ public class DuplicateGroupTest {
 		assertThat(dupeGroup.equals(nonEqualGroup), is(true));
 	}
 	
+	@Test
+	public void testHashCodeIgnoresCase() {
+		DuplicateGroup lowerCase = new DuplicateGroup("abc123");
+		DuplicateGroup upperCase = new DuplicateGroup("ABC123");
+		
+		assertThat(lowerCase.equals(upperCase), is(true));
+		assertThat(lowerCase.hashCode(), is(upperCase.hashCode()));
+	}
+	
 	@Test
 	public void testNoValidImagePath() throws IOException {
 		Path file1 = Paths.get("foobar/");
@@ -0,0 +1,116 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.duplicateViewer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.duplicateViewer.DatabaseHandler;
+import com.github.dozedoff.aidUtil.module.duplicateViewer.DuplicateGroup;
+import com.github.dozedoff.aidUtil.module.duplicateViewer.DuplicateLoader;
+import com.github.dozedoff.aidUtil.module.duplicateViewer.DuplicatePage;
+import com.github.dozedoff.aidUtil.module.duplicateViewer.Entry;
+
+public class DuplicateLoaderTest {
+	DatabaseHandler dbHandler;
+	DuplicateLoader loader;
+	
+	@Before
+	public void setUp() throws Exception {
+		dbHandler = mock(DatabaseHandler.class);
+		loader = new DuplicateLoader(dbHandler, 2);
+		
+		when(dbHandler.getDuplicatePage("", 2)).thenReturn(page("1", "1", "2", "2"));
+		when(dbHandler.getDuplicatePage("2", 2)).thenReturn(page("3", "3"));
+	}
+	
+	@Test
+	public void testFirstPage() throws Exception {
+		List<DuplicateGroup> groups = loader.nextPage();
+		
+		assertThat(groups.size(), is(2));
+		assertThat(groups.get(0).getSize(), is(2));
+		assertThat(loader.hasMore(), is(true));
+	}
+	
+	@Test
+	public void testContinuesAfterLastHash() throws Exception {
+		loader.nextPage();
+		List<DuplicateGroup> groups = loader.nextPage();
+		
+		assertThat(groups.size(), is(1));
+		assertThat(groups.get(0).getImageHashValue(), is("3"));
+	}
+	
+	@Test
+	public void testShortPageFinishes() throws Exception {
+		loader.nextPage();
+		loader.nextPage();
+		
+		assertThat(loader.hasMore(), is(false));
+		assertThat(loader.getLoadedGroups(), is(3));
+		assertThat(loader.getLoadedEntries(), is(6));
+	}
+	
+	@Test
+	public void testNoQueryWhenFinished() throws Exception {
+		when(dbHandler.getDuplicatePage("", 2)).thenReturn(page());
+		
+		loader.nextPage();
+		List<DuplicateGroup> groups = loader.nextPage();
+		
+		assertThat(groups.isEmpty(), is(true));
+		verify(dbHandler, never()).getDuplicatePage("2", 2);
+	}
+	
+	@Test
+	public void testPageWithoutEntriesContinues() throws Exception {
+		DuplicatePage emptyHashes = new DuplicatePage(Arrays.asList("1", "2"), new LinkedList<Entry>());
+		when(dbHandler.getDuplicatePage("", 2)).thenReturn(emptyHashes);
+		
+		List<DuplicateGroup> groups = loader.nextPage();
+		
+		assertThat(groups.isEmpty(), is(true));
+		assertThat(loader.hasMore(), is(true));
+		assertThat(loader.nextPage().get(0).getImageHashValue(), is("3"));
+	}
+	
+	private DuplicatePage page(String... hashes) {
+		LinkedList<Entry> entries = new LinkedList<>();
+		int i = 0;
+		
+		for(String hash : hashes){
+			entries.add(new Entry(hash, Paths.get("file" + i++)));
+		}
+		
+		return new DuplicatePage(new LinkedList<>(new LinkedHashSet<>(Arrays.asList(hashes))), entries);
+	}
+}
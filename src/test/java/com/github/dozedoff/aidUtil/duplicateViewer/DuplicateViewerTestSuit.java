@@ -25,10 +25,13 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
 	DatabaseHandlerTest.class,
 	DeleterTest.class,
+	DuplicateLoaderTest.class,
 	EntryTest.class,
+	FileMetadataCacheTest.class,
 	DuplicateGroupTest.class,
 	SelectorTest.class,
 	GroupListCreatorTest.class,
-	GroupFilterTest.class
+	GroupFilterTest.class,
+	GroupListModelTest.class
 })
 public class DuplicateViewerTestSuit {}
@@ -0,0 +1,133 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.duplicateViewer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.dozedoff.aidUtil.module.duplicateViewer.FileMetadataCache;
+
+public class FileMetadataCacheTest {
+	FileMetadataCache cache;
+	Path directory, file;
+	
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	
+	@Before
+	public void setUp() throws Exception {
+		cache = new FileMetadataCache(1, TimeUnit.HOURS);
+		directory = tempFolder.newFolder("images").toPath();
+		file = Files.write(directory.resolve("foo.jpg"), new byte[42]);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(100000));
+	}
+	
+	@Test
+	public void testMetadata() {
+		FileMetadataCache.Metadata metadata = cache.get(file);
+		
+		assertThat(metadata.exists(), is(true));
+		assertThat(metadata.getSize(), is(42L));
+		assertThat(metadata.getLastModified(), is(100000L));
+	}
+	
+	@Test
+	public void testMissing() {
+		FileMetadataCache.Metadata metadata = cache.get(directory.resolve("bar.jpg"));
+		
+		assertThat(metadata.exists(), is(false));
+		assertThat(metadata.getLastModified(), is(-1L));
+	}
+	
+	@Test
+	public void testCached() throws Exception {
+		cache.get(file);
+		Files.delete(file);
+		
+		assertThat(cache.exists(file), is(true));
+	}
+	
+	@Test
+	public void testInvalidate() throws Exception {
+		cache.get(file);
+		Files.delete(file);
+		cache.invalidate(file);
+		
+		assertThat(cache.exists(file), is(false));
+	}
+	
+	@Test
+	public void testRefresh() throws Exception {
+		cache.get(file);
+		Files.delete(file);
+		
+		assertThat(cache.refresh(file).exists(), is(false));
+		assertThat(cache.exists(file), is(false));
+	}
+	
+	@Test
+	public void testExpired() throws Exception {
+		cache = new FileMetadataCache(0, TimeUnit.NANOSECONDS);
+		cache.get(file);
+		Files.delete(file);
+		
+		assertThat(cache.exists(file), is(false));
+	}
+	
+	@Test
+	public void testPrefetchListedDirectory() throws Exception {
+		List<Path> files = new LinkedList<>();
+		
+		for(int i = 0; i < 10; i++){
+			files.add(Files.createFile(directory.resolve(i + ".png")));
+		}
+		
+		files.add(directory.resolve("gone.png"));
+		cache.prefetch(files, 2);
+		
+		for(Path path : files.subList(0, 10)){
+			Files.delete(path);
+			assertThat(cache.exists(path), is(true));
+		}
+		
+		Files.createFile(directory.resolve("gone.png"));
+		assertThat(cache.exists(directory.resolve("gone.png")), is(false));
+	}
+	
+	@Test
+	public void testPrefetchMissingDirectory() throws Exception {
+		Path missing = directory.resolve("missing");
+		cache.prefetch(Arrays.asList(missing.resolve("a.jpg"), missing.resolve("b.jpg")), 2);
+		
+		assertThat(cache.exists(missing.resolve("a.jpg")), is(false));
+		assertThat(cache.exists(missing.resolve("b.jpg")), is(false));
+	}
+}
@@ -24,6 +24,7 @@ import static org.junit.matchers.JUnitMatchers.hasItems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -66,6 +67,38 @@ public class GroupFilterTest {
 		assertThat(groups.size(), is(1));
 	}
 	
+	@Test
+	public void testFullyValidGroupsReturnsNewList() throws Exception {
+		List<DuplicateGroup> valid = GroupFilter.fullyValidGroups(groups, 2, 1);
+		
+		assertThat(valid, hasItems(allValid));
+		assertThat(valid.size(), is(1));
+		assertThat(groups.size(), is(3));
+	}
+	
+	@Test
+	public void testFullyValidGroupsKeepsOrder() throws Exception {
+		LinkedList<DuplicateGroup> manyGroups = new LinkedList<>();
+		LinkedList<DuplicateGroup> expected = new LinkedList<>();
+		
+		for(int i = 0; i < 1000; i++){
+			DuplicateGroup group = new DuplicateGroup(String.valueOf(i));
+			
+			if(i % 3 == 0){
+				group.addEntry(new Entry(String.valueOf(i), Paths.get("relative/")));
+			}else{
+				group.addEntry(new Entry(String.valueOf(i), validFilePath));
+				expected.add(group);
+			}
+			
+			manyGroups.add(group);
+		}
+		
+		List<DuplicateGroup> valid = GroupFilter.fullyValidGroups(manyGroups, 4, 2);
+		
+		assertThat(valid, is((List<DuplicateGroup>) expected));
+	}
+	
 	private void createGroups() {
 		groups = new LinkedList<>();
 		
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.LinkedList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,7 +33,7 @@ import com.github.dozedoff.aidUtil.module.duplicateViewer.Entry;
 import com.github.dozedoff.aidUtil.module.duplicateViewer.GroupListCreator;
 
 public class GroupListCreatorTest {
-	LinkedList<DuplicateGroup> groups;
+	List<DuplicateGroup> groups;
 	LinkedList<Entry> entries;
 	
 	@Before
@@ -77,6 +78,68 @@ public class GroupListCreatorTest {
 		assertThat(groups.size(), is(4));
 	}
 	
+	@Test
+	public void testCreateListUnordered() {
+		entries.add(createMockEntryWithHash("2"));
+		entries.add(createMockEntryWithHash("1"));
+		entries.add(createMockEntryWithHash("2"));
+		entries.add(createMockEntryWithHash("3"));
+		entries.add(createMockEntryWithHash("1"));
+		
+		groups = GroupListCreator.createList(entries);
+		
+		assertThat(groups.size(), is(3));
+		assertThat(groups.get(0).getImageHashValue(), is("2"));
+		assertThat(groups.get(0).getSize(), is(2));
+		assertThat(groups.get(1).getImageHashValue(), is("1"));
+		assertThat(groups.get(1).getSize(), is(2));
+	}
+	
+	@Test
+	public void testCreateListSameKeyDifferentHash() {
+		entries.add(createMockEntryWithHash("1"));
+		entries.add(createMockEntryWithHash("01"));
+		entries.add(createMockEntryWithHash("1"));
+		entries.add(createMockEntryWithHash("01"));
+		entries.add(createMockEntryWithHash("0"));
+		
+		groups = GroupListCreator.createList(entries);
+		
+		assertThat(groups.size(), is(3));
+		assertThat(groups.get(0).getSize(), is(2));
+		assertThat(groups.get(1).getImageHashValue(), is("01"));
+		assertThat(groups.get(1).getSize(), is(2));
+	}
+	
+	@Test
+	public void testCreateListCaseSensitive() {
+		entries.add(createMockEntryWithHash("ab"));
+		entries.add(createMockEntryWithHash("AB"));
+		entries.add(createMockEntryWithHash("ab"));
+		
+		groups = GroupListCreator.createList(entries);
+		
+		assertThat(groups.size(), is(2));
+	}
+	
+	@Test
+	public void testCreateListNotHex() {
+		entries.add(createMockEntryWithHash("foo"));
+		entries.add(createMockEntryWithHash("bar"));
+		entries.add(createMockEntryWithHash("foo"));
+		
+		groups = GroupListCreator.createList(entries);
+		
+		assertThat(groups.size(), is(2));
+		assertThat(groups.get(0).getSize(), is(2));
+	}
+	
+	@Test
+	public void testCreateListEmpty() {
+		groups = GroupListCreator.createList(entries);
+		assertThat(groups.isEmpty(), is(true));
+	}
+	
 	private Entry createMockEntryWithHash(String hashValue) {
 		Entry mockEntry = mock(Entry.class);
 		when(mockEntry.getHash()).thenReturn(hashValue);
@@ -0,0 +1,144 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.duplicateViewer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.duplicateViewer.DuplicateGroup;
+import com.github.dozedoff.aidUtil.module.duplicateViewer.Entry;
+import com.github.dozedoff.aidUtil.module.duplicateViewer.GroupListModel;
+
+public class GroupListModelTest {
+	GroupListModel model;
+	LinkedList<ListDataEvent> events;
+	
+	@Before
+	public void setUp() throws Exception {
+		model = new GroupListModel();
+		events = new LinkedList<>();
+		
+		model.addListDataListener(new ListDataListener() {
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+				events.add(e);
+			}
+			
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				events.add(e);
+			}
+			
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+				events.add(e);
+			}
+		});
+	}
+	
+	@Test
+	public void testOneEventPerChunk() {
+		model.addAll(Arrays.asList(createGroup("1", 2), createGroup("2", 2), createGroup("3", 3)));
+		
+		assertThat(model.getSize(), is(3));
+		assertThat(events.size(), is(1));
+		assertThat(events.getFirst().getIndex0(), is(0));
+		assertThat(events.getFirst().getIndex1(), is(2));
+	}
+	
+	@Test
+	public void testMaterializedGroup() {
+		model.addAll(Arrays.asList(createGroup("1", 2), createGroup("2", 3)));
+		DuplicateGroup group = model.getElementAt(1);
+		
+		assertThat(group.getImageHashValue(), is("2"));
+		assertThat(group.getSize(), is(3));
+		assertThat(group.getEntries().getFirst().getPath(), is(Paths.get("2-0")));
+		assertThat(group.getGroupId(), is(1));
+	}
+	
+	@Test
+	public void testMaterializedGroupIsKept() {
+		model.addAll(Arrays.asList(createGroup("1", 2)));
+		DuplicateGroup group = model.getElementAt(0);
+		group.selectAll(true);
+		
+		assertThat(model.getElementAt(0), is(sameInstance(group)));
+	}
+	
+	@Test
+	public void testOnlyRequestedGroupsAreMaterialized() {
+		model.addAll(Arrays.asList(createGroup("1", 2), createGroup("2", 2), createGroup("3", 2)));
+		DuplicateGroup group = model.getElementAt(2);
+		
+		assertThat(model.getMaterialized(), is(Arrays.asList(group)));
+	}
+	
+	@Test
+	public void testGrowsBeyondInitialCapacity() {
+		LinkedList<DuplicateGroup> groups = new LinkedList<>();
+		
+		for(int i = 0; i < 3000; i++){
+			groups.add(createGroup(String.valueOf(i), 2));
+		}
+		
+		model.addAll(groups.subList(0, 1000));
+		model.addAll(groups.subList(1000, 3000));
+		
+		assertThat(model.getSize(), is(3000));
+		assertThat(model.getElementAt(2999).getImageHashValue(), is("2999"));
+	}
+	
+	@Test
+	public void testClear() {
+		model.addAll(Arrays.asList(createGroup("1", 2), createGroup("2", 2)));
+		model.getElementAt(0);
+		model.clear();
+		
+		assertThat(model.getSize(), is(0));
+		assertThat(model.getMaterialized().isEmpty(), is(true));
+		assertThat(events.getLast().getType(), is(ListDataEvent.INTERVAL_REMOVED));
+	}
+	
+	@Test(expected=ArrayIndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		model.addAll(Arrays.asList(createGroup("1", 2)));
+		model.getElementAt(1);
+	}
+	
+	private DuplicateGroup createGroup(String hash, int size) {
+		DuplicateGroup group = new DuplicateGroup(hash);
+		
+		for(int i = 0; i < size; i++){
+			group.addEntry(new Entry(hash, Paths.get(hash + "-" + i)));
+		}
+		
+		return group;
+	}
+}
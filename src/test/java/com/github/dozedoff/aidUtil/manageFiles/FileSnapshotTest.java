@@ -0,0 +1,201 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.manageFiles;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.dozedoff.aidUtil.module.manageFiles.FileSnapshot;
+
+public class FileSnapshotTest {
+	FileSnapshot snapshot;
+	
+	final String hashA = "4120B987CF940DAC04632C27FDC072479FD519016D1085DE1CC2A4980D3041BF";
+	final String hashB = "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855";
+	
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	
+	@Before
+	public void setUp() throws Exception {
+		snapshot = new FileSnapshot();
+		snapshot.put(1L, 100L, 2000L, hashA);
+	}
+
+	@Test
+	public void testGetHash() {
+		assertThat(snapshot.getHash(1L, 100L, 2000L), is(hashA));
+	}
+	
+	@Test
+	public void testSizeChanged() {
+		assertThat(snapshot.getHash(1L, 101L, 2000L), is(nullValue()));
+	}
+	
+	@Test
+	public void testModifiedChanged() {
+		assertThat(snapshot.getHash(1L, 100L, 2001L), is(nullValue()));
+	}
+	
+	@Test
+	public void testUnknownFile() {
+		assertThat(snapshot.getHash(2L, 100L, 2000L), is(nullValue()));
+	}
+	
+	@Test
+	public void testReplace() {
+		snapshot.put(1L, 200L, 3000L, hashB);
+		
+		assertThat(snapshot.getHash(1L, 200L, 3000L), is(hashB));
+		assertThat(snapshot.size(), is(1));
+	}
+	
+	@Test
+	public void testZeroFingerprint() {
+		snapshot.put(0L, 1L, 1L, hashB);
+		assertThat(snapshot.getHash(0L, 1L, 1L), is(hashB));
+	}
+	
+	@Test
+	public void testInvalidHashIgnored() {
+		snapshot.put(3L, 1L, 1L, "ABC");
+		assertThat(snapshot.size(), is(1));
+	}
+	
+	@Test
+	public void testAddMissing() {
+		FileSnapshot current = new FileSnapshot();
+		current.put(2L, 300L, 4000L, hashB);
+		
+		assertThat(current.addMissing(snapshot), is(1));
+		assertThat(current.getHash(1L, 100L, 2000L), is(hashA));
+		assertThat(current.getHash(2L, 300L, 4000L), is(hashB));
+		assertThat(current.size(), is(2));
+	}
+	
+	@Test
+	public void testAddMissingKeepsNewer() {
+		FileSnapshot current = new FileSnapshot();
+		current.put(1L, 200L, 3000L, hashB);
+		
+		assertThat(current.addMissing(snapshot), is(0));
+		assertThat(current.getHash(1L, 200L, 3000L), is(hashB));
+		assertThat(current.size(), is(1));
+	}
+	
+	@Test
+	public void testDeletedFileDropped() {
+		FileSnapshot current = new FileSnapshot(16, "");
+		current.put(2L, 300L, 4000L, hashB);
+		
+		assertThat(current.addUncovered(snapshot), is(0));
+		assertThat(current.getHash(1L, 100L, 2000L), is(nullValue()));
+		assertThat(current.size(), is(1));
+	}
+	
+	@Test
+	public void testOutsideScopeKept() {
+		FileSnapshot older = new FileSnapshot(16, "other" + File.separator);
+		older.put(1L, 100L, 2000L, hashA);
+		FileSnapshot current = new FileSnapshot(16, "images" + File.separator);
+		
+		assertThat(current.addUncovered(older), is(1));
+		assertThat(current.getHash(1L, 100L, 2000L), is(hashA));
+	}
+	
+	@Test
+	public void testSubScopeDropped() {
+		FileSnapshot older = new FileSnapshot(16, "images" + File.separator + "sub" + File.separator);
+		older.put(1L, 100L, 2000L, hashA);
+		FileSnapshot current = new FileSnapshot(16, "images" + File.separator);
+		
+		assertThat(current.addUncovered(older), is(0));
+	}
+	
+	@Test
+	public void testScopeSurvivesSave() throws Exception {
+		FileSnapshot older = new FileSnapshot(16, "other" + File.separator);
+		older.put(1L, 100L, 2000L, hashA);
+		FileSnapshot current = new FileSnapshot(16, "images" + File.separator);
+		current.addUncovered(older);
+		
+		Path file = tempFolder.getRoot().toPath().resolve("scope.snapshot");
+		current.save(file);
+		FileSnapshot next = new FileSnapshot(16, "other" + File.separator);
+		
+		assertThat(next.addUncovered(FileSnapshot.load(file)), is(0));
+	}
+	
+	@Test
+	public void testKeep() {
+		FileSnapshot current = new FileSnapshot();
+		
+		assertThat(current.keep(snapshot, 1L), is(true));
+		assertThat(current.keep(snapshot, 2L), is(false));
+		assertThat(current.getHash(1L, 100L, 2000L), is(hashA));
+		assertThat(current.addUncovered(snapshot), is(0));
+	}
+	
+	@Test
+	public void testAddMissingGrows() {
+		FileSnapshot older = new FileSnapshot();
+		
+		for(long i = 1; i <= 100; i++){
+			older.put(i, i, i, hashA);
+		}
+		
+		FileSnapshot current = new FileSnapshot();
+		current.addMissing(older);
+		
+		assertThat(current.size(), is(100));
+		assertThat(current.getHash(100L, 100L, 100L), is(hashA));
+	}
+	
+	@Test
+	public void testSaveLoad() throws Exception {
+		for(long i = 10; i < 1000; i++){
+			snapshot.put(i, i, i, hashB);
+		}
+		
+		Path file = tempFolder.getRoot().toPath().resolve("test.snapshot");
+		snapshot.save(file);
+		FileSnapshot loaded = FileSnapshot.load(file);
+		
+		assertThat(loaded.size(), is(snapshot.size()));
+		assertThat(loaded.getHash(1L, 100L, 2000L), is(hashA));
+		assertThat(loaded.getHash(500L, 500L, 500L), is(hashB));
+	}
+	
+	@Test
+	public void testLoadMissing() throws Exception {
+		Path file = tempFolder.getRoot().toPath().resolve("missing.snapshot");
+		
+		assertThat(FileSnapshot.load(file).size(), is(0));
+		assertThat(Files.exists(file), is(false));
+	}
+}
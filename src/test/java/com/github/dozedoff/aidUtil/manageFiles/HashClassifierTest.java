@@ -0,0 +1,153 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.manageFiles;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.manageFiles.HashClassifier;
+import com.github.dozedoff.aidUtil.module.manageFiles.HashClassifier.HashStatus;
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+public class HashClassifierTest {
+	static final int BATCH_SIZE = 50;
+	
+	final EnumSet<HashStatus> allLists = EnumSet.of(HashStatus.BLACKLISTED, HashStatus.DNW, HashStatus.INDEXED);
+	
+	ConnectionPool connPool;
+	Connection con;
+	PreparedStatement classify;
+	ResultSet rs;
+	
+	@Before
+	public void setUp() throws Exception {
+		rs = mock(ResultSet.class);
+		classify = mock(PreparedStatement.class);
+		when(classify.executeQuery()).thenReturn(rs);
+		
+		con = mock(Connection.class);
+		when(con.prepareStatement(anyString())).thenReturn(classify);
+		
+		connPool = mock(ConnectionPool.class);
+		when(connPool.getConnection()).thenReturn(con);
+	}
+
+	@Test
+	public void testBuildQuery() {
+		String query = HashClassifier.buildQuery(EnumSet.of(HashStatus.BLACKLISTED, HashStatus.INDEXED), 2);
+		
+		assertThat(query, is("SELECT 0, `id` FROM `block` WHERE `id` IN (?,?) UNION ALL SELECT 2, `id` FROM `fileindex` WHERE `id` IN (?,?)"));
+	}
+	
+	@Test
+	public void testBuildQueryBatchSize() {
+		String query = HashClassifier.buildQuery(allLists, BATCH_SIZE);
+		
+		assertThat(count(query, '?'), is(BATCH_SIZE * allLists.size()));
+		assertThat(query.split("UNION ALL").length, is(allLists.size()));
+	}
+	
+	@Test
+	public void testClassifyMixed() throws Exception {
+		// hashB is in two lists, the first status wins
+		when(rs.next()).thenReturn(true, true, true, true, false);
+		when(rs.getInt(1)).thenReturn(HashStatus.BLACKLISTED.ordinal(), HashStatus.INDEXED.ordinal(), HashStatus.DNW.ordinal(), HashStatus.INDEXED.ordinal());
+		when(rs.getString(2)).thenReturn("A", "B", "B", "C");
+		
+		Map<String, HashStatus> status = new HashClassifier(connPool, allLists).classify(Arrays.asList("A", "B", "C", "D"));
+		
+		assertThat(status.get("A"), is(HashStatus.BLACKLISTED));
+		assertThat(status.get("B"), is(HashStatus.DNW));
+		assertThat(status.get("C"), is(HashStatus.INDEXED));
+		assertThat(status.get("D"), is(HashStatus.UNKNOWN));
+		assertThat(status.size(), is(4));
+	}
+	
+	@Test
+	public void testUnrequestedRowIgnored() throws Exception {
+		when(rs.next()).thenReturn(true, false);
+		when(rs.getInt(1)).thenReturn(HashStatus.DNW.ordinal());
+		when(rs.getString(2)).thenReturn("X");
+		
+		Map<String, HashStatus> status = new HashClassifier(connPool, allLists).classify(Arrays.asList("A"));
+		
+		assertThat(status.get("A"), is(HashStatus.UNKNOWN));
+		assertThat(status.containsKey("X"), is(false));
+	}
+	
+	@Test
+	public void testClassifyFullBatch() throws Exception {
+		List<String> hashes = new ArrayList<>();
+		
+		for(int i = 0; i < BATCH_SIZE; i++){
+			hashes.add(Integer.toHexString(i));
+		}
+		
+		Map<String, HashStatus> status = new HashClassifier(connPool, allLists).classify(hashes);
+		
+		assertThat(status.size(), is(BATCH_SIZE));
+		verify(con).prepareStatement(HashClassifier.buildQuery(allLists, BATCH_SIZE));
+		verify(classify).setString(eq(BATCH_SIZE * allLists.size()), anyString());
+		verify(classify, never()).setString(eq(BATCH_SIZE * allLists.size() + 1), anyString());
+	}
+	
+	@Test
+	public void testDuplicateHashesQueriedOnce() throws Exception {
+		new HashClassifier(connPool, EnumSet.of(HashStatus.DNW)).classify(Arrays.asList("A", "A", "B"));
+		
+		verify(con).prepareStatement(HashClassifier.buildQuery(EnumSet.of(HashStatus.DNW), 2));
+	}
+	
+	@Test
+	public void testNothingChecked() throws Exception {
+		Map<String, HashStatus> status = new HashClassifier(connPool, EnumSet.noneOf(HashStatus.class)).classify(Arrays.asList("A"));
+		
+		assertThat(status.get("A"), is(HashStatus.UNKNOWN));
+		verify(connPool, never()).getConnection();
+	}
+	
+	private int count(String text, char c) {
+		int count = 0;
+		
+		for(int i = 0; i < text.length(); i++){
+			if(text.charAt(i) == c){
+				count++;
+			}
+		}
+		
+		return count;
+	}
+}
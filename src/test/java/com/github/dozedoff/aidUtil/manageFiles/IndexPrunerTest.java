@@ -0,0 +1,140 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.manageFiles;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.dozedoff.aidUtil.module.manageFiles.IndexPruner;
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+public class IndexPrunerTest {
+	Path directory;
+	ConnectionPool connPool;
+	PreparedStatement delete;
+	
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	
+	@Before
+	public void setUp() throws Exception {
+		directory = tempFolder.newFolder("images").toPath();
+		Files.createFile(directory.resolve("foo.jpg"));
+		Files.createFile(directory.resolve("Bar.png"));
+		
+		// one file in an existing directory, one in a top-level directory that is gone
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.next()).thenReturn(true, true, false);
+		when(rs.getString(1)).thenReturn("images/", "gone/sub/");
+		when(rs.getString(2)).thenReturn("missing.jpg", "lost.jpg");
+		
+		PreparedStatement select = mock(PreparedStatement.class);
+		when(select.executeQuery()).thenReturn(rs);
+		delete = mock(PreparedStatement.class);
+		
+		Connection con = mock(Connection.class);
+		when(con.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(select);
+		when(con.prepareStatement(anyString())).thenReturn(delete);
+		
+		connPool = mock(ConnectionPool.class);
+		when(connPool.getConnection()).thenReturn(con);
+	}
+
+	@Test
+	public void testNothingMissing() throws Exception {
+		List<String> missing = IndexPruner.findMissing(directory, Arrays.asList("foo.jpg", "Bar.png"), false);
+		assertThat(missing.isEmpty(), is(true));
+	}
+	
+	@Test
+	public void testMissing() throws Exception {
+		List<String> missing = IndexPruner.findMissing(directory, Arrays.asList("foo.jpg", "gone.gif"), false);
+		assertThat(missing, is(Arrays.asList("gone.gif")));
+	}
+	
+	@Test
+	public void testCaseSensitive() throws Exception {
+		List<String> missing = IndexPruner.findMissing(directory, Arrays.asList("bar.png"), false);
+		assertThat(missing, is(Arrays.asList("bar.png")));
+	}
+	
+	@Test
+	public void testIgnoreCase() throws Exception {
+		List<String> missing = IndexPruner.findMissing(directory, Arrays.asList("bar.png"), true);
+		assertThat(missing.isEmpty(), is(true));
+	}
+	
+	@Test
+	public void testMissingDirectory() throws Exception {
+		List<String> missing = IndexPruner.findMissing(directory.resolve("gone"), Arrays.asList("foo.jpg"), false);
+		assertThat(missing, is(Arrays.asList("foo.jpg")));
+	}
+	
+	@Test(expected=IOException.class)
+	public void testPruneMissingRoot() throws Exception {
+		new IndexPruner(connPool, "test", directory.resolve("unmounted"), 2).prune();
+	}
+	
+	@Test
+	public void testPruneKeepsMissingTree() throws Exception {
+		IndexPruner pruner = new IndexPruner(connPool, "test", tempFolder.getRoot().toPath(), 2);
+		
+		assertThat(pruner.prune(), is(1L));
+		assertThat(pruner.getKept(), is(1L));
+		assertThat(pruner.getMissingTrees().contains(tempFolder.getRoot().toPath().resolve("gone")), is(true));
+	}
+	
+	@Test
+	public void testPruneMissingTree() throws Exception {
+		IndexPruner pruner = new IndexPruner(connPool, "test", tempFolder.getRoot().toPath(), 2);
+		pruner.setPruneMissingTrees(true);
+		
+		assertThat(pruner.prune(), is(2L));
+		assertThat(pruner.getKept(), is(0L));
+	}
+	
+	@Test
+	public void testPruneEmptyRoot() throws Exception {
+		// an unmounted mount point is an empty directory
+		IndexPruner pruner = new IndexPruner(connPool, "test", tempFolder.newFolder("mnt").toPath(), 2);
+		
+		assertThat(pruner.prune(), is(0L));
+		assertThat(pruner.getKept(), is(2L));
+		verify(delete, never()).executeUpdate();
+	}
+}
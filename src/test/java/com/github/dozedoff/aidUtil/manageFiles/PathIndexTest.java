@@ -0,0 +1,70 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.manageFiles;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.manageFiles.PathIndex;
+
+public class PathIndexTest {
+	PathIndex index;
+	
+	@Before
+	public void setUp() throws Exception {
+		index = new PathIndex(10, true);
+		index.add("foo/bar/test.jpg");
+	}
+
+	@Test
+	public void testContains() {
+		assertThat(index.contains("C:\\foo\\bar\\test.jpg", 3), is(true));
+	}
+	
+	@Test
+	public void testNotContained() {
+		assertThat(index.contains("C:\\foo\\bar\\test2.jpg", 3), is(false));
+	}
+	
+	@Test
+	public void testSeparators() {
+		assertThat(index.contains("/foo/bar/test.jpg", 1), is(true));
+	}
+	
+	@Test
+	public void testIgnoreCase() {
+		assertThat(index.contains("C:\\FOO\\bar\\Test.jpg", 3), is(true));
+	}
+	
+	@Test
+	public void testCaseSensitive() {
+		index = new PathIndex(10, false);
+		index.add("foo/bar/test.jpg");
+		
+		assertThat(index.contains("/FOO/bar/test.jpg", 1), is(false));
+	}
+	
+	@Test
+	public void testSize() {
+		index.add("foo/bar/test.jpg");
+		assertThat(index.size(), is(1));
+	}
+}
@@ -0,0 +1,102 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.manageLists;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.module.manageLists.ListWriter;
+import com.github.dozedoff.aidUtil.module.manageLists.ListWriter.ListMode;
+import com.github.dozedoff.aidUtil.util.StageMetrics;
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+public class ListWriterTest {
+	ConnectionPool connPool;
+	Connection con;
+	PreparedStatement stmt;
+	StageMetrics writeStage;
+	
+	@Before
+	public void setUp() throws Exception {
+		connPool = mock(ConnectionPool.class);
+		con = mock(Connection.class);
+		stmt = mock(PreparedStatement.class);
+		writeStage = new StageMetrics("write");
+		
+		when(connPool.getConnection()).thenReturn(con);
+		when(con.prepareStatement(anyString())).thenReturn(stmt);
+	}
+	
+	@Test
+	public void testWritesFullBatch() throws Exception {
+		ListWriter writer = new ListWriter(connPool, ListMode.UN_DNW, 2, writeStage);
+		
+		writer.add("1");
+		assertThat(writer.getWritten(), is(0L));
+		
+		writer.add("2");
+		assertThat(writer.getWritten(), is(2L));
+		verify(con).commit();
+	}
+	
+	@Test
+	public void testFlush() throws Exception {
+		ListWriter writer = new ListWriter(connPool, ListMode.DNW, 2, writeStage);
+		
+		writer.add("1");
+		writer.add("2");
+		writer.add("3");
+		writer.flush();
+		
+		assertThat(writer.getWritten(), is(3L));
+		verify(con, times(2)).commit();
+	}
+	
+	@Test
+	public void testFlushEmpty() throws Exception {
+		ListWriter writer = new ListWriter(connPool, ListMode.DNW, 2, writeStage);
+		writer.flush();
+		
+		verify(connPool, times(0)).getConnection();
+	}
+	
+	@Test
+	public void testFailedBatch() throws Exception {
+		when(stmt.executeUpdate()).thenThrow(new SQLException("forced failure"));
+		ListWriter writer = new ListWriter(connPool, ListMode.BLACKLIST, 2, writeStage);
+		
+		writer.add("1");
+		writer.flush();
+		
+		assertThat(writer.getWritten(), is(0L));
+		assertThat(writer.getFailed(), is(1L));
+		verify(con).rollback();
+	}
+}
@@ -0,0 +1,122 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BloomFilterTest {
+	BloomFilter filter;
+	Random random = new Random(42);
+	
+	final String hash = "4120B987CF940DAC04632C27FDC072479FD519016D1085DE1CC2A4980D3041BF";
+	
+	@Before
+	public void setUp() throws Exception {
+		filter = new BloomFilter(1000, 0.01);
+	}
+
+	@Test
+	public void testEmpty() {
+		assertThat(filter.mightContain(hash), is(false));
+	}
+	
+	@Test
+	public void testPut() {
+		filter.put(hash);
+		assertThat(filter.mightContain(hash), is(true));
+	}
+	
+	@Test
+	public void testNoFalseNegatives() {
+		long[] keys = new long[2000];
+		
+		for(int i = 0; i < keys.length; i++){
+			keys[i] = random.nextLong();
+		}
+		
+		for(int i = 0; i < keys.length; i += 2){
+			filter.put(keys[i], keys[i + 1]);
+		}
+		
+		for(int i = 0; i < keys.length; i += 2){
+			assertThat(filter.mightContain(keys[i], keys[i + 1]), is(true));
+		}
+	}
+	
+	@Test
+	public void testFalsePositiveRate() {
+		for(int i = 0; i < 1000; i++){
+			filter.put(random.nextLong(), random.nextLong());
+		}
+		
+		int falsePositives = 0;
+		
+		for(int i = 0; i < 10000; i++){
+			if(filter.mightContain(random.nextLong(), random.nextLong())){
+				falsePositives++;
+			}
+		}
+		
+		assertTrue("Too many false positives: " + falsePositives, falsePositives < 300);
+	}
+	
+	@Test
+	public void testConcurrentPut() throws Exception {
+		final long[] keys = new long[4000];
+		
+		for(int i = 0; i < keys.length; i++){
+			keys[i] = random.nextLong();
+		}
+		
+		Thread[] threads = new Thread[4];
+		
+		for(int t = 0; t < threads.length; t++){
+			final int offset = t * 2;
+			
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for(int i = offset; i < keys.length; i += 8){
+						filter.put(keys[i], keys[i + 1]);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		
+		for(Thread thread : threads){
+			thread.join();
+		}
+		
+		for(int i = 0; i < keys.length; i += 2){
+			assertThat(filter.mightContain(keys[i], keys[i + 1]), is(true));
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidRate() {
+		new BloomFilter(100, 1.5);
+	}
+}
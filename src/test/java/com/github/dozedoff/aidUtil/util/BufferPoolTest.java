@@ -0,0 +1,84 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BufferPoolTest {
+	BufferPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new BufferPool(1024 * 1024);
+	}
+
+	@Test
+	public void testAcquireLimit() {
+		ByteBuffer buffer = pool.acquire(100);
+		assertThat(buffer.limit(), is(100));
+		assertThat(buffer.capacity(), is(BufferPool.MIN_BUFFER_SIZE));
+	}
+
+	@Test
+	public void testAcquireRoundsUp() {
+		ByteBuffer buffer = pool.acquire(BufferPool.MIN_BUFFER_SIZE + 1);
+		assertThat(buffer.capacity(), is(BufferPool.MIN_BUFFER_SIZE * 2));
+	}
+
+	@Test
+	public void testReuse() {
+		ByteBuffer buffer = pool.acquire(70000);
+		pool.release(buffer);
+
+		assertThat(pool.acquire(100000), sameInstance(buffer));
+		assertThat(pool.getRetained(), is(0L));
+	}
+
+	@Test
+	public void testReuseIsCleared() {
+		ByteBuffer buffer = pool.acquire(10);
+		buffer.put((byte) 1);
+		pool.release(buffer);
+
+		ByteBuffer reused = pool.acquire(20);
+		assertThat(reused.position(), is(0));
+		assertThat(reused.limit(), is(20));
+	}
+
+	@Test
+	public void testCapacityFor() {
+		assertThat(pool.capacityFor(0), is(BufferPool.MIN_BUFFER_SIZE));
+		assertThat(pool.capacityFor(BufferPool.MIN_BUFFER_SIZE + 1), is(BufferPool.MIN_BUFFER_SIZE * 2));
+		assertThat(pool.capacityFor(100000), is(pool.acquire(100000).capacity()));
+	}
+
+	@Test
+	public void testRetainLimit() {
+		ByteBuffer buffer = pool.acquire(2 * 1024 * 1024);
+		pool.release(buffer);
+
+		assertThat(pool.getRetained(), is(0L));
+	}
+}
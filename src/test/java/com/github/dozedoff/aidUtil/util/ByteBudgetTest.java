@@ -0,0 +1,111 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ByteBudgetTest {
+	ByteBudget budget;
+	
+	@Before
+	public void setUp() throws Exception {
+		budget = new ByteBudget(100);
+	}
+
+	@Test
+	public void testAcquire() throws Exception {
+		budget.acquire(60);
+		assertThat(budget.getUsed(), is(60L));
+	}
+	
+	@Test
+	public void testTryAcquireOverBudget() throws Exception {
+		budget.acquire(60);
+		assertThat(budget.tryAcquire(50), is(false));
+		assertThat(budget.getUsed(), is(60L));
+	}
+	
+	@Test
+	public void testOversizedWhenEmpty() throws Exception {
+		assertThat(budget.tryAcquire(500), is(true));
+	}
+	
+	@Test
+	public void testRelease() throws Exception {
+		budget.acquire(60);
+		budget.release(60);
+		assertThat(budget.tryAcquire(100), is(true));
+	}
+	
+	@Test(timeout=5000)
+	public void testAcquireBlocksUntilRelease() throws Exception {
+		budget.acquire(80);
+		
+		Thread releaser = new Thread() {
+			@Override
+			public void run() {
+				try {
+					sleep(100);
+				} catch (InterruptedException e) {}
+				budget.release(80);
+			}
+		};
+		releaser.start();
+		
+		budget.acquire(50);
+		assertThat(budget.getUsed(), is(50L));
+	}
+	
+	@Test(timeout=5000)
+	public void testTimedAcquireTimesOut() throws Exception {
+		budget.acquire(80);
+		
+		assertThat(budget.tryAcquire(50, 50, TimeUnit.MILLISECONDS), is(false));
+		assertThat(budget.getUsed(), is(80L));
+	}
+	
+	@Test(timeout=5000)
+	public void testTimedAcquire() throws Exception {
+		budget.acquire(80);
+		
+		Thread releaser = new Thread() {
+			@Override
+			public void run() {
+				try {
+					sleep(100);
+				} catch (InterruptedException e) {}
+				budget.release(80);
+			}
+		};
+		releaser.start();
+		
+		assertThat(budget.tryAcquire(50, 5, TimeUnit.SECONDS), is(true));
+		assertThat(budget.getUsed(), is(50L));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new ByteBudget(0);
+	}
+}
@@ -0,0 +1,99 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EtaEstimatorTest {
+	EtaEstimator eta;
+	
+	final long SECOND = 1000000000L;
+	
+	@Before
+	public void setUp() throws Exception {
+		eta = new EtaEstimator(0.5, SECOND);
+	}
+
+	@Test
+	public void testUnknownWithoutSamples() {
+		assertThat(eta.getRemainingSeconds(), is(-1L));
+		assertThat(eta.getRemaining(), is(EtaEstimator.UNKNOWN));
+	}
+	
+	@Test
+	public void testUnknownWithoutProgress() {
+		eta.update(0, 1000, 0);
+		eta.update(0, 1000, SECOND);
+		
+		assertThat(eta.getRemaining(), is(EtaEstimator.UNKNOWN));
+	}
+	
+	@Test
+	public void testConstantRate() {
+		eta.update(0, 1000, 0);
+		eta.update(100, 1000, SECOND);
+		
+		assertThat(eta.getRemainingSeconds(), is(9L));
+	}
+	
+	@Test
+	public void testSmoothing() {
+		eta.update(0, 1000, 0);
+		eta.update(100, 1000, SECOND);
+		eta.update(400, 1000, 2 * SECOND);
+		
+		assertThat(eta.getRate(), is(200.0));
+		assertThat(eta.getRemainingSeconds(), is(3L));
+	}
+	
+	@Test
+	public void testIgnoreShortInterval() {
+		eta.update(0, 1000, 0);
+		eta.update(100, 1000, SECOND);
+		eta.update(500, 1000, SECOND + 1000);
+		
+		assertThat(eta.getRate(), is(100.0));
+		assertThat(eta.getRemainingSeconds(), is(5L));
+	}
+	
+	@Test
+	public void testFormat() {
+		eta.update(0, 3661 * 2, 0);
+		eta.update(1, 3661 * 2, SECOND);
+		
+		assertThat(eta.getRemaining(), is("02:02:01"));
+	}
+	
+	@Test
+	public void testReset() {
+		eta.update(0, 1000, 0);
+		eta.update(100, 1000, SECOND);
+		eta.reset();
+		
+		assertThat(eta.getRemainingSeconds(), is(-1L));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSmoothing() {
+		new EtaEstimator(0, SECOND);
+	}
+}
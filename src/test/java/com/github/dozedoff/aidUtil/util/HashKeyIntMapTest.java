@@ -0,0 +1,72 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashKeyIntMapTest {
+	HashKeyIntMap map;
+	
+	@Before
+	public void setUp() throws Exception {
+		map = new HashKeyIntMap();
+	}
+
+	@Test
+	public void testPut() {
+		assertThat(map.put(1, 2, 42), is(HashKeyIntMap.NO_VALUE));
+		assertThat(map.get(1, 2), is(42));
+		assertThat(map.size(), is(1));
+	}
+	
+	@Test
+	public void testReplace() {
+		map.put(1, 2, 42);
+		
+		assertThat(map.put(1, 2, 7), is(42));
+		assertThat(map.get(1, 2), is(7));
+		assertThat(map.size(), is(1));
+	}
+	
+	@Test
+	public void testMissing() {
+		map.put(1, 2, 42);
+		
+		assertThat(map.get(2, 1), is(HashKeyIntMap.NO_VALUE));
+		assertThat(map.get(1, 3), is(HashKeyIntMap.NO_VALUE));
+	}
+	
+	@Test
+	public void testGrow() {
+		for(int i = 0; i < 10000; i++){
+			map.put(i, i * 31L, i);
+		}
+		
+		assertThat(map.size(), is(10000));
+		
+		for(int i = 0; i < 10000; i++){
+			assertThat(map.get(i, i * 31L), is(i));
+		}
+		
+		assertThat(map.get(10000, 10000 * 31L), is(HashKeyIntMap.NO_VALUE));
+	}
+}
@@ -0,0 +1,128 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashKeySetTest {
+	HashKeySet set;
+	
+	final String hashA = "4120B987CF940DAC04632C27FDC072479FD519016D1085DE1CC2A4980D3041BF";
+	final String hashB = "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855";
+	
+	@Before
+	public void setUp() throws Exception {
+		set = new HashKeySet();
+	}
+
+	@Test
+	public void testAdd() {
+		assertThat(set.add(hashA), is(true));
+		assertThat(set.contains(hashA), is(true));
+		assertThat(set.size(), is(1));
+	}
+	
+	@Test
+	public void testAddExisting() {
+		set.add(hashA);
+		assertThat(set.add(hashA), is(false));
+		assertThat(set.size(), is(1));
+	}
+	
+	@Test
+	public void testNotContained() {
+		set.add(hashA);
+		assertThat(set.contains(hashB), is(false));
+	}
+	
+	@Test
+	public void testLowerCase() {
+		set.add(hashA);
+		assertThat(set.contains(hashA.toLowerCase()), is(true));
+	}
+	
+	@Test
+	public void testGrow() {
+		for(long i = 0; i < 10000; i++){
+			set.add(i, i * 31);
+		}
+		
+		assertThat(set.size(), is(10000));
+		
+		for(long i = 0; i < 10000; i++){
+			assertThat(set.contains(i, i * 31), is(true));
+		}
+		
+		assertThat(set.contains(10000, 10000 * 31), is(false));
+	}
+	
+	@Test
+	public void testRemove() {
+		set.add(hashA);
+		set.add(hashB);
+		
+		assertThat(set.remove(hashA), is(true));
+		assertThat(set.remove(hashA), is(false));
+		assertThat(set.contains(hashA), is(false));
+		assertThat(set.contains(hashB), is(true));
+		assertThat(set.size(), is(1));
+	}
+	
+	@Test
+	public void testRemoveKeepsProbedKeys() {
+		// fill densely so keys collide and are shifted back on removal
+		for(long i = 0; i < 1000; i++){
+			set.add(i, i * 31);
+		}
+		
+		for(long i = 0; i < 1000; i += 2){
+			assertThat(set.remove(i, i * 31), is(true));
+		}
+		
+		for(long i = 0; i < 1000; i++){
+			assertThat(set.contains(i, i * 31), is(i % 2 == 1));
+		}
+		
+		assertThat(set.size(), is(500));
+	}
+	
+	@Test
+	public void testClear() {
+		set.add(hashA);
+		set.clear();
+		
+		assertThat(set.contains(hashA), is(false));
+		assertThat(set.size(), is(0));
+		assertThat(set.add(hashA), is(true));
+	}
+	
+	@Test
+	public void testKeyParts() {
+		assertThat(HashKeys.high(hashA), is(0x4120B987CF940DACL));
+		assertThat(HashKeys.low(hashA), is(0x04632C27FDC07247L));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidHash() {
+		set.add("XYZ");
+	}
+}
@@ -0,0 +1,70 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	LatencyHistogram histogram;
+	
+	@Before
+	public void setUp() throws Exception {
+		histogram = new LatencyHistogram();
+	}
+
+	@Test
+	public void testEmpty() {
+		assertThat(histogram.getCount(), is(0L));
+		assertThat(histogram.getMean(), is(0L));
+		assertThat(histogram.getPercentile(99), is(0L));
+	}
+	
+	@Test
+	public void testMean() {
+		histogram.record(1000);
+		histogram.record(3000);
+		assertThat(histogram.getMean(), is(2000L));
+		assertThat(histogram.getCount(), is(2L));
+	}
+	
+	@Test
+	public void testPercentile() {
+		for(int i = 0; i < 99; i++){
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+		
+		assertThat(histogram.getPercentile(50), is(TimeUnit.MICROSECONDS.toNanos(128)));
+		assertThat(histogram.getPercentile(99), is(TimeUnit.MICROSECONDS.toNanos(128)));
+		assertThat(histogram.getPercentile(100), is(TimeUnit.MICROSECONDS.toNanos(131072)));
+	}
+	
+	@Test
+	public void testReset() {
+		histogram.record(1000);
+		histogram.reset();
+		assertThat(histogram.getCount(), is(0L));
+	}
+}
@@ -0,0 +1,155 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import io.AidTables;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.dbunit.Assertion;
+import org.dbunit.DatabaseTestCase;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.ext.mysql.MySqlDataTypeFactory;
+import org.dbunit.util.fileloader.FlatXmlDataFileLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.commonj.io.BoneConnectionPool;
+import com.github.dozedoff.commonj.io.ConnectionPool;
+
+import config.DefaultMySQLconnection;
+
+public class ListServiceDatabaseTest extends DatabaseTestCase {
+	final String ListService_PATH = "/com/github/dozedoff/aidUtil/dbData/ListServiceTestData.xml";
+	final String ListServiceMove_PATH = "/com/github/dozedoff/aidUtil/dbData/ListServiceMoveTestData.xml";
+	final String[] TABLES = {"block", "dnw", "fileindex", "fileduplicate"};
+	
+	ListService listService;
+	BoneConnectionPool bcp;
+	
+	@Before
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		bcp = new BoneConnectionPool(new DefaultMySQLconnection("127.0.0.1", 3306, "test", "test", "test"), 10);
+		bcp.startPool();
+		listService = new ListService(bcp);
+	}
+	
+	@Test
+	public void testMoveToDnw() throws Exception {
+		int moved = listService.moveToList(Arrays.asList("10", "40"), AidTables.Dnw);
+		
+		assertThat(moved, is(2));
+		
+		for(String table : TABLES){
+			Assertion.assertEquals(getFileTable(table, ListServiceMove_PATH), getDatabaseTable(table));
+		}
+	}
+	
+	@Test
+	public void testRemoveFromBlacklist() throws Exception {
+		listService.removeFromList(Arrays.asList("10"), AidTables.Block);
+		
+		assertThat(getDatabaseTable("block").getRowCount(), is(0));
+		Assertion.assertEquals(getFileTable("fileindex", ListService_PATH), getDatabaseTable("fileindex"));
+	}
+	
+	@Test
+	public void testFailedMoveIsRolledBack() throws Exception {
+		ConnectionPool failingPool = mock(ConnectionPool.class);
+		when(failingPool.getConnection()).thenReturn(failOnTable(bcp.getConnection(), "fileduplicate"));
+		
+		try {
+			new ListService(failingPool).moveToList(Arrays.asList("10", "40"), AidTables.Dnw);
+			fail("Move should have failed");
+		} catch (SQLException e) {
+			// expected, the dnw insert and the block delete already ran
+		}
+		
+		for(String table : TABLES){
+			Assertion.assertEquals(getFileTable(table, ListService_PATH), getDatabaseTable(table));
+		}
+	}
+	
+	/**
+	 * Wrap the connection, so preparing a statement for the table fails.
+	 */
+	private Connection failOnTable(final Connection con, final String table) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getName().equals("prepareStatement") && args[0].toString().contains("`" + table + "`")){
+					throw new SQLException("Forced failure for " + table);
+				}
+				
+				try {
+					return method.invoke(con, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+	
+	// Connection related methods
+	
+	@Override
+	protected IDatabaseConnection getConnection() throws Exception {
+		Class.forName("com.mysql.jdbc.Driver"); 
+		
+		Connection jdbcConnection = DriverManager.getConnection( "jdbc:mysql://localhost/test","test", "test"); 
+		DatabaseConnection dbConn = new DatabaseConnection(jdbcConnection);
+		
+		dbConn.getConfig().setProperty("http://www.dbunit.org/properties/datatypeFactory", new MySqlDataTypeFactory());
+		
+		return dbConn;
+	}
+
+	@Override
+	protected IDataSet getDataSet() throws Exception {
+		IDataSet dataSet = new FlatXmlDataFileLoader().load(ListService_PATH);
+
+		return dataSet;
+	}
+	
+	private ITable getDatabaseTable(String tableName) throws SQLException, Exception{
+		IDataSet databaseDataSet = getConnection().createDataSet();
+		return databaseDataSet.getTable(tableName);
+	}
+	
+	private ITable getFileTable(String tableName, String fileName) throws DataSetException{
+		IDataSet expectedDataSet = new FlatXmlDataFileLoader().load(fileName);
+		return expectedDataSet.getTable(tableName);
+	}
+}
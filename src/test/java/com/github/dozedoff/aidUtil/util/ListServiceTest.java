@@ -0,0 +1,67 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import io.AidTables;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ListServiceTest {
+	@Test
+	public void testMoveToDnw() {
+		List<String> statements = ListService.buildStatements(AidTables.Dnw, false, 2);
+		
+		assertThat(statements, is(Arrays.asList(
+				"INSERT IGNORE INTO `dnw` (`id`) VALUES (?),(?)",
+				"DELETE FROM `block` WHERE `id` IN (?,?)",
+				"DELETE FROM `fileindex` WHERE `id` IN (?,?)",
+				"DELETE FROM `fileduplicate` WHERE `id` IN (?,?)"
+		)));
+	}
+	
+	@Test
+	public void testMoveToBlacklist() {
+		List<String> statements = ListService.buildStatements(AidTables.Block, false, 1);
+		
+		assertThat(statements.size(), is(4));
+		assertThat(statements.get(0), is("INSERT IGNORE INTO `block` (`id`) VALUES (?)"));
+		assertThat(statements.get(1), is("DELETE FROM `dnw` WHERE `id` IN (?)"));
+	}
+	
+	@Test
+	public void testRemoveFromDnw() {
+		List<String> statements = ListService.buildStatements(AidTables.Dnw, true, 3);
+		assertThat(statements, is(Arrays.asList("DELETE FROM `dnw` WHERE `id` IN (?,?,?)")));
+	}
+	
+	@Test
+	public void testRemoveFromBlacklist() {
+		List<String> statements = ListService.buildStatements(AidTables.Block, true, 1);
+		assertThat(statements, is(Arrays.asList("DELETE FROM `block` WHERE `id` IN (?)")));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNotAList() {
+		ListService.buildStatements(AidTables.Fileindex, false, 1);
+	}
+}
@@ -0,0 +1,70 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LongHashSetTest {
+	LongHashSet set;
+	
+	@Before
+	public void setUp() throws Exception {
+		set = new LongHashSet();
+	}
+
+	@Test
+	public void testAdd() {
+		assertThat(set.add(42L), is(true));
+		assertThat(set.contains(42L), is(true));
+		assertThat(set.contains(43L), is(false));
+	}
+	
+	@Test
+	public void testAddExisting() {
+		set.add(42L);
+		assertThat(set.add(42L), is(false));
+		assertThat(set.size(), is(1));
+	}
+	
+	@Test
+	public void testZero() {
+		assertThat(set.contains(0L), is(false));
+		assertThat(set.add(0L), is(true));
+		assertThat(set.contains(0L), is(true));
+		assertThat(set.size(), is(1));
+	}
+	
+	@Test
+	public void testGrow() {
+		for(long i = 1; i <= 10000; i++){
+			set.add(i * 1024);
+		}
+		
+		assertThat(set.size(), is(10000));
+		
+		for(long i = 1; i <= 10000; i++){
+			assertThat(set.contains(i * 1024), is(true));
+		}
+		
+		assertThat(set.contains(1023L), is(false));
+	}
+}
@@ -0,0 +1,81 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.matchers.JUnitMatchers.containsString;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RunMetricsTest {
+	RunMetrics metrics;
+	StageMetrics stage;
+	StripedCounter counter;
+	
+	@Before
+	public void setUp() throws Exception {
+		metrics = new RunMetrics("test");
+		stage = metrics.stage("hash");
+		counter = metrics.counter("blocked");
+		metrics.start();
+	}
+
+	@Test
+	public void testSameStage() {
+		assertThat(metrics.stage("hash"), sameInstance(stage));
+	}
+	
+	@Test
+	public void testSameCounter() {
+		assertThat(metrics.counter("blocked"), sameInstance(counter));
+	}
+	
+	@Test
+	public void testStartResets() {
+		stage.record(1, 100, 1000);
+		counter.increment();
+		metrics.start();
+		
+		assertThat(stage.getItems().sum(), is(0L));
+		assertThat(counter.sum(), is(0L));
+	}
+	
+	@Test
+	public void testLogLine() {
+		stage.record(2, 2048, 1000000);
+		counter.add(3);
+		metrics.stop();
+		
+		String line = metrics.toLogLine();
+		
+		assertThat(line, containsString("metrics run=test"));
+		assertThat(line, containsString(" blocked=3"));
+		assertThat(line, containsString(" hash.count=2"));
+		assertThat(line, containsString(" hash.bytes=2048"));
+		assertThat(line, containsString(" hash.mean_ms=1.0"));
+	}
+	
+	@Test
+	public void testSummary() {
+		stage.record(2, 0, 1000);
+		assertThat(metrics.getSummary(), containsString("hash "));
+	}
+}
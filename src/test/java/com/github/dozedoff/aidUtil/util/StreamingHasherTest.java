@@ -0,0 +1,91 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.dozedoff.aidUtil.archiveIndexer.ArchiveUnpackerTest;
+
+public class StreamingHasherTest {
+	static Path testFile;
+	StreamingHasher hasher;
+	
+	final String expectedTestHash = "4120B987CF940DAC04632C27FDC072479FD519016D1085DE1CC2A4980D3041BF";
+	final String expectedEmptyHash = "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855";
+	
+	@BeforeClass
+	public static void before() throws Exception {
+		testFile = Paths.get(ArchiveUnpackerTest.class.getResource("test.7z").toURI());
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		hasher = new StreamingHasher();
+	}
+
+	@Test
+	public void testHashFile() throws Exception {
+		assertThat(hasher.hash(testFile), is(expectedTestHash));
+	}
+	
+	@Test
+	public void testHashStream() throws Exception {
+		byte[] data = Files.readAllBytes(testFile);
+		assertThat(hasher.hash(new ByteArrayInputStream(data)), is(expectedTestHash));
+	}
+	
+	@Test
+	public void testBufferSmallerThanFile() throws Exception {
+		hasher = new StreamingHasher(16);
+		assertThat(hasher.hash(testFile), is(expectedTestHash));
+	}
+	
+	@Test
+	public void testHashBuffer() throws Exception {
+		ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(testFile));
+		assertThat(hasher.hash(data), is(expectedTestHash));
+		assertThat(data.remaining(), is(0));
+	}
+	
+	@Test
+	public void testReuse() throws Exception {
+		hasher.hash(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+		assertThat(hasher.hash(testFile), is(expectedTestHash));
+	}
+	
+	@Test
+	public void testEmptyStream() throws Exception {
+		assertThat(hasher.hash(new ByteArrayInputStream(new byte[0])), is(expectedEmptyHash));
+	}
+	
+	@Test
+	public void testToHex() {
+		assertThat(StreamingHasher.toHex(new byte[] {0, 15, (byte) 0xAB, (byte) 0xFF}), is("000FABFF"));
+	}
+}
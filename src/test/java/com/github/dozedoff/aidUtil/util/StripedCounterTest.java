@@ -0,0 +1,81 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StripedCounterTest {
+	StripedCounter counter;
+	
+	@Before
+	public void setUp() throws Exception {
+		counter = new StripedCounter();
+	}
+
+	@Test
+	public void testIncrement() {
+		counter.increment();
+		counter.increment();
+		assertThat(counter.sum(), is(2L));
+	}
+	
+	@Test
+	public void testAdd() {
+		counter.add(40);
+		counter.add(2);
+		assertThat(counter.sum(), is(42L));
+	}
+	
+	@Test
+	public void testReset() {
+		counter.add(40);
+		counter.reset();
+		assertThat(counter.sum(), is(0L));
+	}
+	
+	@Test(timeout=10000)
+	public void testConcurrentIncrement() throws Exception {
+		LinkedList<Thread> threads = new LinkedList<>();
+		
+		for(int i = 0; i < 8; i++){
+			Thread t = new Thread() {
+				@Override
+				public void run() {
+					for(int j = 0; j < 10000; j++){
+						counter.increment();
+					}
+				}
+			};
+			
+			threads.add(t);
+			t.start();
+		}
+		
+		for(Thread t : threads){
+			t.join();
+		}
+		
+		assertThat(counter.sum(), is(80000L));
+	}
+}
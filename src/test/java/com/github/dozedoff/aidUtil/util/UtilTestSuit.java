@@ -0,0 +1,40 @@
+/*  Copyright (C) 2012  Nicholas Wright
+	
+	part of 'AidUtil', a collection of maintenance tools for 'Aid'.
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.aidUtil.util;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+	BloomFilterTest.class,
+	BufferPoolTest.class,
+	ByteBudgetTest.class,
+	EtaEstimatorTest.class,
+	HashKeyIntMapTest.class,
+	HashKeySetTest.class,
+	LatencyHistogramTest.class,
+	ListServiceDatabaseTest.class,
+	ListServiceTest.class,
+	LongHashSetTest.class,
+	RunMetricsTest.class,
+	StreamingHasherTest.class,
+	StripedCounterTest.class
+})
+public class UtilTestSuit {}